@@ -0,0 +1,81 @@
+package com.curisprofound.tddwebstack.benchmarks;
+
+import com.curisprofound.tddwebstack.services.BookImportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code BookHandler.getAll} through the book routes against the embedded Mongo, including
+ * publisher resolution and encoding, as a JSON array and as a stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookReadBenchmark {
+
+    @Param({"100", "1000"})
+    private int books;
+
+    @Param({"10"})
+    private int publishers;
+
+    private ConfigurableApplicationContext context;
+    private WebTestClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = Fixtures.start();
+        context.getBean(BookImportService.class)
+                .importBooks(Flux.fromIterable(Fixtures.books(books, publishers)))
+                .block();
+        client = WebTestClient
+                .bindToRouterFunction(context.getBean("bookRoutes", RouterFunction.class))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] getAllBooks() {
+        return read(MediaType.APPLICATION_JSON);
+    }
+
+    @Benchmark
+    public byte[] streamAllBooks() {
+        return read(MediaType.APPLICATION_STREAM_JSON);
+    }
+
+    private byte[] read(MediaType accept) {
+        return client.get()
+                .uri("/books")
+                .accept(accept)
+                .exchange()
+                .expectBody()
+                .returnResult()
+                .getResponseBody();
+    }
+}
@@ -0,0 +1,73 @@
+package com.curisprofound.tddwebstack.benchmarks;
+
+import com.curisprofound.tddwebstack.controllers.CustomerController;
+import com.curisprofound.tddwebstack.db.Customer;
+import com.curisprofound.tddwebstack.services.CustomerIngestService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CustomerController#getAllCustomers} against the embedded H2, with and without
+ * the JSON serialization the endpoint adds on top. The requests carry no entity tag, so
+ * every call reads the listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerReadBenchmark {
+
+    @Param({"100", "1000"})
+    private int customers;
+
+    private ConfigurableApplicationContext context;
+    private CustomerController customerController;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = Fixtures.start();
+        context.getBean(CustomerIngestService.class).ingest(Fixtures.customers(customers).iterator());
+        customerController = context.getBean(CustomerController.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Customer> getAllCustomers() {
+        return customerController.getAllCustomers(request()).getBody();
+    }
+
+    @Benchmark
+    public byte[] getAllCustomersAsJson() throws Exception {
+        return objectMapper.writeValueAsBytes(customerController.getAllCustomers(request()).getBody());
+    }
+
+    private static ServletWebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/customers"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.curisprofound.tddwebstack.benchmarks;
+
+import com.curisprofound.tddwebstack.TddWebStackApplication;
+import com.curisprofound.tddwebstack.db.Address;
+import com.curisprofound.tddwebstack.db.Author;
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.Customer;
+import com.curisprofound.tddwebstack.db.Invoice;
+import com.curisprofound.tddwebstack.db.Product;
+import com.curisprofound.tddwebstack.db.Publisher;
+import com.curisprofound.tddwebstack.db.ShippingContact;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Shared setup of the benchmarks: the application context on an in-memory H2 and the
+ * embedded Mongo, and deterministic data sets, so runs before and after a change compare.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(TddWebStackApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--logging.level.root=WARN");
+    }
+
+    /**
+     * Customers with their element collections filled, as the ingest would store them.
+     */
+    static List<Customer> customers(int count) {
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Customer customer = new Customer();
+            customer.setId(i);
+            customer.setName("customer" + i);
+            customer.getPhoneNumbers().add("555-01" + i);
+            customer.getPhoneNumbers().add("555-02" + i);
+            customer.getAddresses().add(new Address(i + " Main St", "Unit " + i, "Toronto", "M5V" + i, null));
+            customer.getAddresses().add(new Address(i + " King St", null, "Ottawa", "K1A" + i, null));
+            customer.getMealPreferences().put("breakfast", "eggs");
+            customer.getMealPreferences().put("dinner", "fish");
+            customers.add(customer);
+        }
+        return customers;
+    }
+
+    /**
+     * A customer with every association populated; back-references are left empty so the
+     * graph serializes as the endpoints see it.
+     */
+    static Customer fullCustomer(int id) {
+        Customer customer = customers(id).get(id - 1);
+        customer.setShippingContact(new ShippingContact(id, "contact" + id, "555-03" + id, null, 0));
+        for (int i = 0; i < 5; i++) {
+            List<Product> products = new ArrayList<>();
+            for (int j = 0; j < 3; j++)
+                products.add(new Product(i * 3 + j, "product" + j, j, null, 0));
+            customer.getInvoices().add(new Invoice(i, new Date(0), "store" + i, null, products, 0));
+        }
+        return customer;
+    }
+
+    /**
+     * Books spread over {@code publishers} publishers, each with an embedded author.
+     */
+    static List<Book> books(int count, int publishers) {
+        List<Publisher> catalog = new ArrayList<>(publishers);
+        for (int i = 0; i < publishers; i++)
+            catalog.add(new Publisher("publisher" + i, "publisher " + i, "P" + i, null, null, null));
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Publisher publisher = catalog.get(i % publishers);
+            Book book = new Book("book" + i, "title " + i, new Author("author" + i, "555-04" + i), publisher, null, null);
+            publisher.getBooks().add(book.getId());
+            books.add(book);
+        }
+        return books;
+    }
+}
@@ -0,0 +1,62 @@
+package com.curisprofound.tddwebstack.benchmarks;
+
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization alone, with the mapper configured the way Boot configures it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Customer customer;
+    private List<Customer> customerPage;
+    private Book book;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        customer = Fixtures.fullCustomer(1);
+        customerPage = new ArrayList<>();
+        for (int i = 1; i <= 100; i++)
+            customerPage.add(Fixtures.fullCustomer(i));
+        book = Fixtures.books(1, 1).get(0);
+    }
+
+    @Benchmark
+    public byte[] serializeCustomer() throws Exception {
+        return objectMapper.writeValueAsBytes(customer);
+    }
+
+    @Benchmark
+    public byte[] serializeCustomerPage() throws Exception {
+        return objectMapper.writeValueAsBytes(customerPage);
+    }
+
+    @Benchmark
+    public byte[] serializeBook() throws Exception {
+        return objectMapper.writeValueAsBytes(book);
+    }
+}
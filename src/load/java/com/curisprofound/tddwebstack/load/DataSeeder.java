@@ -0,0 +1,101 @@
+package com.curisprofound.tddwebstack.load;
+
+import com.curisprofound.tddwebstack.db.Address;
+import com.curisprofound.tddwebstack.db.Author;
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.Customer;
+import com.curisprofound.tddwebstack.db.Invoice;
+import com.curisprofound.tddwebstack.db.Product;
+import com.curisprofound.tddwebstack.db.Publisher;
+import com.curisprofound.tddwebstack.services.BookImportService;
+import com.curisprofound.tddwebstack.services.CustomerIngestService;
+import org.springframework.context.ApplicationContext;
+import reactor.core.publisher.Flux;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Fills the embedded databases through the application's own bulk paths. The data is
+ * deterministic, so two runs with the same options load the same dataset.
+ */
+class DataSeeder {
+
+    private static final int CHUNK = 500;
+
+    private final ApplicationContext context;
+    private final LoadOptions options;
+
+    DataSeeder(ApplicationContext context, LoadOptions options) {
+        this.context = context;
+        this.options = options;
+    }
+
+    void seed() {
+        int customers = options.getInt("customers");
+        context.getBean(CustomerIngestService.class)
+                .ingest(IntStream.rangeClosed(1, customers).mapToObj(DataSeeder::customer).iterator());
+        seedInvoices(customers, options.getInt("invoices-per-customer"), options.getInt("products"));
+        context.getBean(BookImportService.class)
+                .importBooks(books(options.getInt("books"), options.getInt("publishers")))
+                .block();
+    }
+
+    private static Customer customer(int id) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setName("customer" + id);
+        customer.getPhoneNumbers().add("555-01" + id);
+        customer.getAddresses().add(new Address(id + " Main St", null, "Toronto", "M5V" + id, null));
+        customer.getMealPreferences().put("dinner", "fish");
+        return customer;
+    }
+
+    private void seedInvoices(int customers, int perCustomer, int productCount) {
+        if (customers == 0 || perCustomer == 0 || productCount == 0)
+            return;
+        EntityManager em = context.getBean(EntityManagerFactory.class).createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<Product> products = new ArrayList<>(productCount);
+            for (int i = 0; i < productCount; i++) {
+                Product product = new Product();
+                product.setName("product" + i);
+                product.setNumber(i);
+                em.persist(product);
+                products.add(product);
+            }
+            em.getTransaction().commit();
+
+            for (int id = 1; id <= customers; id++) {
+                if (id % CHUNK == 1)
+                    em.getTransaction().begin();
+                Customer customer = em.find(Customer.class, (long) id);
+                for (int i = 0; i < perCustomer; i++) {
+                    List<Product> lines = new ArrayList<>();
+                    lines.add(em.getReference(Product.class, products.get((id + i) % productCount).getId()));
+                    Invoice invoice = new Invoice(0, new Date(0), "store" + i, customer, lines, 0);
+                    em.persist(invoice);
+                    customer.getInvoices().add(invoice);
+                }
+                if (id % CHUNK == 0 || id == customers) {
+                    em.getTransaction().commit();
+                    em.clear();
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    private static Flux<Book> books(int count, int publishers) {
+        return Flux.range(0, count).map(i -> {
+            Publisher publisher = new Publisher("publisher" + (i % publishers), "publisher " + (i % publishers), "P" + (i % publishers), null, null, null);
+            return new Book("book" + i, "title " + i, new Author("author" + i, "555-04" + i), publisher, null, null);
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package com.curisprofound.tddwebstack.load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code name=value} arguments of the load run (a leading {@code --} is optional), with the
+ * defaults below for anything not given.
+ */
+class LoadOptions {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("customers", "1000");
+        DEFAULTS.put("invoices-per-customer", "3");
+        DEFAULTS.put("products", "50");
+        DEFAULTS.put("books", "5000");
+        DEFAULTS.put("publishers", "50");
+        DEFAULTS.put("targets", "customers,customer-page,reactive-customer,books,book");
+        DEFAULTS.put("rate", "100");
+        DEFAULTS.put("concurrency", "64");
+        DEFAULTS.put("warmup", "10");
+        DEFAULTS.put("duration", "30");
+        DEFAULTS.put("report", "target/load-report.json");
+    }
+
+    private final Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+
+    LoadOptions(String[] args) {
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            if (!option.contains("="))
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            String name = option.substring(0, option.indexOf('='));
+            if (!DEFAULTS.containsKey(name))
+                throw new IllegalArgumentException("Unknown option " + name + ", expected one of " + DEFAULTS.keySet());
+            values.put(name, option.substring(option.indexOf('=') + 1));
+        }
+    }
+
+    int getInt(String name) {
+        return Integer.parseInt(values.get(name));
+    }
+
+    String get(String name) {
+        return values.get(name);
+    }
+
+    /**
+     * Zero or less switches to the closed model: {@code concurrency} clients, each sending
+     * its next request when the previous one completes.
+     */
+    boolean isOpenModel() {
+        return getInt("rate") > 0;
+    }
+
+    Map<String, String> asMap() {
+        return values;
+    }
+}
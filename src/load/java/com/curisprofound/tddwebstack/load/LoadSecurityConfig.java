@@ -0,0 +1,29 @@
+package com.curisprofound.tddwebstack.load;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+/**
+ * Opens the read-only book routes for the load run only, so the harness measures the data
+ * path rather than authentication. Registered explicitly by {@link LoadTest} and deliberately
+ * not a {@code @Configuration}, so component scanning never picks it up; its chain is ordered
+ * before the application's reactive chain.
+ */
+class LoadSecurityConfig {
+
+    @Bean
+    @Order(1)
+    public SecurityWebFilterChain loadSecurityChain() {
+        ServerHttpSecurity http = ServerHttpSecurity.http();
+        http.securityMatcher(ServerWebExchangeMatchers.pathMatchers(HttpMethod.GET, "/books", "/books/*"))
+                .authorizeExchange().anyExchange().permitAll();
+        http.httpBasic().disable();
+        http.csrf().disable();
+        http.logout().disable();
+        return http.build();
+    }
+}
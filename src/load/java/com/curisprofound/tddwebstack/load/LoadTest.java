@@ -0,0 +1,189 @@
+package com.curisprofound.tddwebstack.load;
+
+import com.curisprofound.tddwebstack.TddWebStackApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Starts the application on the embedded H2 and Mongo, seeds it, and drives the MVC and
+ * functional endpoints over HTTP.
+ * <p>
+ * In the open model requests are started at a fixed {@code rate} regardless of how fast
+ * the server answers, and latency is taken from the time a request was due, so a stalled
+ * server shows up in the percentiles instead of slowing the load down. At most
+ * {@code concurrency} requests are in flight; arrivals beyond that are counted as dropped.
+ * With {@code rate=0}, {@code concurrency} clients send back to back instead.
+ */
+public class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadOptions options;
+    private final WebClient client;
+    private final List<Target> targets;
+
+    private LoadTest(LoadOptions options, int port) {
+        this.options = options;
+        this.client = WebClient.create("http://localhost:" + port);
+        this.targets = Arrays.stream(options.get("targets").split(","))
+                .map(String::trim)
+                .map(name -> Target.named(name, options))
+                .collect(toList());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = new LoadOptions(args);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                TddWebStackApplication.class, LoadSecurityConfig.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN");
+        try {
+            new DataSeeder(context, options).seed();
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            new LoadTest(options, port).run();
+        } finally {
+            context.close();
+        }
+    }
+
+    private void run() throws Exception {
+        phase(options.getInt("warmup"));
+        Instant started = Instant.now();
+        Phase measured = phase(options.getInt("duration"));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("started", started.toString());
+        report.put("model", options.isOpenModel() ? "open" : "closed");
+        report.put("options", options.asMap());
+        report.put("dropped", measured.dropped.sum());
+        TargetStats total = new TargetStats();
+        Map<String, Object> perTarget = new LinkedHashMap<>();
+        for (int i = 0; i < targets.size(); i++) {
+            perTarget.put(targets.get(i).name, measured.stats[i].report(measured.seconds));
+            total.add(measured.stats[i]);
+        }
+        report.put("total", total.report(measured.seconds));
+        report.put("targets", perTarget);
+
+        File file = new File(options.get("report"));
+        if (file.getParentFile() != null)
+            file.getParentFile().mkdirs();
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.writeValue(file, report);
+        log.info("Load test summary: {}", mapper.writeValueAsString(summary(report)));
+        log.info("Report written to {}", file.getAbsolutePath());
+    }
+
+    private Phase phase(int seconds) {
+        Phase phase = new Phase(targets.size(), seconds);
+        if (seconds <= 0)
+            return phase;
+        int concurrency = options.getInt("concurrency");
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        if (options.isOpenModel()) {
+            long period = Duration.ofSeconds(1).toNanos() / options.getInt("rate");
+            long start = System.nanoTime();
+            Flux.interval(Duration.ZERO, Duration.ofNanos(period))
+                    .take(Duration.ofSeconds(seconds))
+                    .onBackpressureDrop(tick -> phase.dropped.increment())
+                    .flatMap(tick -> send(phase, (int) (tick % targets.size()), start + tick * period), concurrency)
+                    .blockLast();
+        } else {
+            Flux.range(0, concurrency)
+                    .flatMap(worker -> Mono.defer(() -> send(phase,
+                            ThreadLocalRandom.current().nextInt(targets.size()), System.nanoTime()))
+                            .repeat(() -> System.nanoTime() < deadline), concurrency)
+                    .blockLast();
+        }
+        return phase;
+    }
+
+    private Mono<Void> send(Phase phase, int target, long due) {
+        return client.get()
+                .uri(targets.get(target).uri.apply(ThreadLocalRandom.current()))
+                .exchange()
+                .flatMap(response -> response.bodyToMono(Void.class)
+                        .then(Mono.just(response.statusCode().isError())))
+                .timeout(TIMEOUT)
+                .onErrorReturn(true)
+                .doOnNext(error -> phase.stats[target].record(System.nanoTime() - due, error))
+                .then();
+    }
+
+    private static Map<String, Object> summary(Map<String, Object> report) {
+        Map<String, Object> summary = new LinkedHashMap<>(report);
+        summary.remove("options");
+        strip(summary.get("total"));
+        ((Map<?, ?>) summary.get("targets")).values().forEach(LoadTest::strip);
+        return summary;
+    }
+
+    private static void strip(Object target) {
+        ((Map<?, ?>) target).remove("histogram");
+    }
+
+    private static class Phase {
+        private final TargetStats[] stats;
+        private final LongAdder dropped = new LongAdder();
+        private final double seconds;
+
+        Phase(int targets, int seconds) {
+            this.stats = new TargetStats[targets];
+            for (int i = 0; i < targets; i++)
+                this.stats[i] = new TargetStats();
+            this.seconds = seconds;
+        }
+    }
+
+    private static class Target {
+        private final String name;
+        private final Function<ThreadLocalRandom, String> uri;
+
+        private Target(String name, Function<ThreadLocalRandom, String> uri) {
+            this.name = name;
+            this.uri = uri;
+        }
+
+        static Target named(String name, LoadOptions options) {
+            int customers = Math.max(1, options.getInt("customers"));
+            int books = Math.max(1, options.getInt("books"));
+            switch (name) {
+                case "customers":
+                    return new Target(name, random -> "/customers");
+                case "customer-page":
+                    return new Target(name, random -> "/customers?size=100&after=" + random.nextInt(customers));
+                case "reactive-customer":
+                    return new Target(name, random -> "/reactive/customers/" + (1 + random.nextInt(customers)));
+                case "books":
+                    return new Target(name, random -> "/books");
+                case "book":
+                    return new Target(name, random -> "/books/book" + random.nextInt(books));
+                default:
+                    throw new IllegalArgumentException("Unknown target " + name);
+            }
+        }
+    }
+}
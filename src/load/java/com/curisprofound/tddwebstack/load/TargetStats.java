@@ -0,0 +1,64 @@
+package com.curisprofound.tddwebstack.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies of one target in microseconds, plus request and error counts. Only the
+ * measured phase is recorded; the warm-up phase uses a separate instance that is thrown away.
+ */
+class TargetStats {
+
+    private final Histogram latency = new ConcurrentHistogram(3);
+    private final LongAdder errors = new LongAdder();
+
+    void record(long nanos, boolean error) {
+        latency.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        if (error)
+            errors.increment();
+    }
+
+    void add(TargetStats other) {
+        latency.add(other.latency);
+        errors.add(other.errors.sum());
+    }
+
+    /**
+     * The summary comes with the whole histogram, compressed and base64 encoded, so runs can
+     * be compared or plotted beyond the fixed percentiles.
+     */
+    Map<String, Object> report(double seconds) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("requests", latency.getTotalCount());
+        report.put("errors", errors.sum());
+        report.put("throughput", latency.getTotalCount() / seconds);
+        Map<String, Object> millis = new LinkedHashMap<>();
+        millis.put("p50", percentile(50));
+        millis.put("p90", percentile(90));
+        millis.put("p99", percentile(99));
+        millis.put("p999", percentile(99.9));
+        millis.put("max", latency.getMaxValue() / 1000.0);
+        millis.put("mean", latency.getMean() / 1000.0);
+        report.put("latencyMillis", millis);
+        report.put("histogram", encoded());
+        return report;
+    }
+
+    private double percentile(double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private String encoded() {
+        ByteBuffer buffer = ByteBuffer.allocate(latency.getNeededByteBufferCapacity());
+        int length = latency.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+}
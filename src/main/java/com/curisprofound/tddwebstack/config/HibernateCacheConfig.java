@@ -0,0 +1,57 @@
+package com.curisprofound.tddwebstack.config;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.util.ResourceUtils;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Second-level cache support. Hibernate 5.2 hands {@code hibernate.javax.cache.uri} to the JCache
+ * provider as is, so a {@code classpath:} location is resolved to a real URL before the entity
+ * manager factory starts. Boot 2.0 has no Hibernate metrics auto-configuration, so the cache and
+ * query statistics are bound to Micrometer here.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    static final String CACHE_URI = "hibernate.javax.cache.uri";
+
+    @Bean
+    public static BeanPostProcessor jcacheUriResolver() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof LocalContainerEntityManagerFactoryBean)
+                    resolveCacheUri(((LocalContainerEntityManagerFactoryBean) bean).getJpaPropertyMap());
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder hibernateMetrics(EntityManagerFactory entityManagerFactory) {
+        return new HibernateMetrics(entityManagerFactory, "entityManagerFactory", Tags.empty());
+    }
+
+    private static void resolveCacheUri(Map<String, Object> properties) {
+        Object uri = properties.get(CACHE_URI);
+        if (!(uri instanceof String) || !((String) uri).startsWith(ResourceUtils.CLASSPATH_URL_PREFIX))
+            return;
+        try {
+            properties.put(CACHE_URI, new DefaultResourceLoader().getResource((String) uri).getURI().toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot resolve " + CACHE_URI + " " + uri, e);
+        }
+    }
+}
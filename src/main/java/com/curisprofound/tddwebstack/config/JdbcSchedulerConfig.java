@@ -0,0 +1,35 @@
+package com.curisprofound.tddwebstack.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scheduler blocking JDBC calls are moved to, off the request threads. It is bounded on both
+ * ends: at most {@code pool-size} threads, which should not exceed the connection pool, and at most
+ * {@code queue-depth} waiting calls. Idle threads time out, and work beyond the queue is rejected
+ * with a {@link java.util.concurrent.RejectedExecutionException} instead of piling up.
+ */
+@Configuration
+public class JdbcSchedulerConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(@Value("${customers.jdbc-scheduler.pool-size:10}") int poolSize,
+                                   @Value("${customers.jdbc-scheduler.queue-depth:1000}") int queueDepth) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueDepth),
+                new CustomizableThreadFactory("jdbc-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return Schedulers.fromExecutorService(executor);
+    }
+}
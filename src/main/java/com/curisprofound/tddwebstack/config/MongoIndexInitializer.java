@@ -0,0 +1,100 @@
+package com.curisprofound.tddwebstack.config;
+
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.util.ClassTypeInformation;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The reactive template does not create the indexes declared on documents, so they are ensured
+ * here once the application is ready. Definitions come from the {@code @Indexed} and
+ * {@code @CompoundIndex} annotations plus {@link #PARTIAL_INDEXES}, which annotations cannot
+ * express. {@code createIndex} is a no-op for an index that already exists as declared, so a
+ * restart only verifies them; the work is subscribed to, never blocked on.
+ */
+@Component
+public class MongoIndexInitializer implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    static final List<Class<?>> DOCUMENTS = Arrays.asList(Book.class, Publisher.class);
+
+    static final List<Tuple2<Class<?>, IndexDefinition>> PARTIAL_INDEXES = Collections.singletonList(
+            Tuples.of(Publisher.class, new Index()
+                    .on("postalCode", Sort.Direction.ASC)
+                    .named("postalCode")
+                    .partial(PartialIndexFilter.of(Criteria.where("postalCode").exists(true)))));
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MongoPersistentEntityIndexResolver indexResolver;
+    private volatile Mono<List<String>> ensured = Mono.empty();
+
+    @Autowired
+    public MongoIndexInitializer(ReactiveMongoTemplate mongoTemplate, MongoMappingContext mappingContext) {
+        this.mongoTemplate = mongoTemplate;
+        this.indexResolver = new MongoPersistentEntityIndexResolver(mappingContext);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ensured = ensureIndexes().cache();
+        ensured.subscribe(
+                names -> log.info("Mongo indexes in place: {}", names),
+                e -> log.warn("Could not ensure Mongo indexes", e));
+    }
+
+    /**
+     * Completes with the names of the ensured indexes once startup has created or verified them.
+     */
+    public Mono<List<String>> ensured() {
+        return ensured;
+    }
+
+    /**
+     * Creates any declared index that is missing; safe to run again at any time. An index that
+     * cannot be created, such as one conflicting with an existing definition, is logged and left
+     * out of the names, and the ones after it are still ensured.
+     */
+    public Mono<List<String>> ensureIndexes() {
+        return Flux.fromIterable(definitions())
+                .concatMap(index -> mongoTemplate.indexOps(index.getT1())
+                        .ensureIndex(index.getT2())
+                        .onErrorResume(e -> {
+                            log.warn("Index {} on {} conflicts with the existing one",
+                                    index.getT2().getIndexKeys(), index.getT1().getSimpleName(), e);
+                            return Mono.empty();
+                        }))
+                .collectList();
+    }
+
+    private List<Tuple2<Class<?>, IndexDefinition>> definitions() {
+        List<Tuple2<Class<?>, IndexDefinition>> definitions = new ArrayList<>();
+        for (Class<?> document : DOCUMENTS)
+            indexResolver.resolveIndexFor(ClassTypeInformation.from(document))
+                    .forEach(holder -> definitions.add(Tuples.of(document, holder.getIndexDefinition())));
+        definitions.addAll(PARTIAL_INDEXES);
+        return definitions;
+    }
+}
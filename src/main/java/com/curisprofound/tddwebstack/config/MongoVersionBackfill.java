@@ -0,0 +1,71 @@
+package com.curisprofound.tddwebstack.config;
+
+import com.mongodb.client.result.UpdateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Documents written before books and publishers were versioned have neither a {@code version} nor
+ * a {@code lastModified}. Saving one as read would take the missing version for a new document and
+ * insert it, failing on its id, so both fields are set once the application is ready: version 0,
+ * as the import writes, and the time of the backfill. Only documents missing a field are touched,
+ * so a restart finds nothing to do; the work is subscribed to, never blocked on.
+ */
+@Component
+public class MongoVersionBackfill implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoVersionBackfill.class);
+
+    private static final String VERSION = "version";
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private volatile Mono<Long> backfilled = Mono.empty();
+
+    @Autowired
+    public MongoVersionBackfill(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        backfilled = backfill().cache();
+        backfilled.subscribe(
+                count -> log.info("Backfilled the version or stamp of {} Mongo documents", count),
+                e -> log.warn("Could not backfill Mongo document versions", e));
+    }
+
+    /**
+     * Completes with the number of documents changed once the startup backfill is done.
+     */
+    public Mono<Long> backfilled() {
+        return backfilled;
+    }
+
+    /**
+     * Sets the version and stamp of every book and publisher missing them; safe to run again at any
+     * time.
+     */
+    public Mono<Long> backfill() {
+        Date now = new Date();
+        return Flux.fromIterable(MongoIndexInitializer.DOCUMENTS)
+                .concatMap(document -> Flux.concat(
+                        mongoTemplate.updateMulti(query(where(VERSION).exists(false)), new Update().set(VERSION, 0L), document),
+                        mongoTemplate.updateMulti(query(where(LAST_MODIFIED).exists(false)), new Update().set(LAST_MODIFIED, now), document)))
+                .map(UpdateResult::getModifiedCount)
+                .reduce(0L, Long::sum);
+    }
+}
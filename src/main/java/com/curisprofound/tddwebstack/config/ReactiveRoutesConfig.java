@@ -0,0 +1,77 @@
+package com.curisprofound.tddwebstack.config;
+
+import com.curisprofound.tddwebstack.controllers.CustomerController;
+import com.curisprofound.tddwebstack.metrics.RouteMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ServletHttpHandlerAdapter;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.WebFilterChainProxy;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.util.List;
+
+/**
+ * The application runs on the servlet stack, so WebFlux never picks up {@link RouterFunction} beans
+ * by itself. All route beans are combined into one {@link HttpHandler} here and mounted on Tomcat
+ * through {@link ServletHttpHandlerAdapter}, which uses non-blocking Servlet 3.1 I/O. Their security
+ * chains run as a web filter of that handler, the first chain matching a request applying.
+ */
+@Configuration
+public class ReactiveRoutesConfig {
+
+    @Bean
+    public HttpHandler reactiveRoutesHandler(List<RouterFunction<ServerResponse>> routes,
+                                             ObjectMapper objectMapper,
+                                             RouteMetrics routeMetrics,
+                                             List<SecurityWebFilterChain> securityChains) {
+        RouterFunction<ServerResponse> router = routes.stream()
+                .reduce(RouterFunction::and)
+                .orElseThrow(() -> new IllegalStateException("No reactive routes defined"));
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(configurer -> {
+                    configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper,
+                            MediaType.APPLICATION_JSON,
+                            new MediaType("application", "*+json"),
+                            CustomerController.APPLICATION_NDJSON));
+                })
+                .webFilter(routeMetrics)
+                .webFilter(new WebFilterChainProxy(securityChains))
+                .build();
+        return RouterFunctions.toHttpHandler(router, strategies);
+    }
+
+    @Bean
+    public ServletRegistrationBean<ServletHttpHandlerAdapter> bookRoutesServlet(HttpHandler reactiveRoutesHandler) {
+        return mount("bookRoutes", "/books/*", reactiveRoutesHandler);
+    }
+
+    @Bean
+    public ServletRegistrationBean<ServletHttpHandlerAdapter> publisherRoutesServlet(HttpHandler reactiveRoutesHandler) {
+        return mount("publisherRoutes", "/publishers/*", reactiveRoutesHandler);
+    }
+
+    @Bean
+    public ServletRegistrationBean<ServletHttpHandlerAdapter> reactiveCustomerRoutesServlet(HttpHandler reactiveRoutesHandler) {
+        return mount("reactiveCustomerRoutes", "/reactive/*", reactiveRoutesHandler);
+    }
+
+    private static ServletRegistrationBean<ServletHttpHandlerAdapter> mount(String name, String mapping, HttpHandler handler) {
+        ServletRegistrationBean<ServletHttpHandlerAdapter> registration =
+                new ServletRegistrationBean<>(new ServletHttpHandlerAdapter(handler), mapping);
+        registration.setName(name);
+        registration.setAsyncSupported(true);
+        registration.setLoadOnStartup(1);
+        return registration;
+    }
+}
@@ -0,0 +1,88 @@
+package com.curisprofound.tddwebstack.config;
+
+import com.curisprofound.tddwebstack.security.BearerTokenAuthenticationWebFilter;
+import com.curisprofound.tddwebstack.security.BearerTokens;
+import com.curisprofound.tddwebstack.security.CachingReactiveAuthenticationManager;
+import com.curisprofound.tddwebstack.security.VerifiedCredentials;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.ServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.ServerHttpBasicAuthenticationConverter;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.ServerAuthenticationEntryPointFailureHandler;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.savedrequest.NoOpServerRequestCache;
+import reactor.core.publisher.Mono;
+
+/**
+ * Security for the functional routes, applied by {@link ReactiveRoutesConfig} as a web filter of
+ * their own handler so it runs inside the reactive pipeline; {@link WebSecurityConfig} leaves their
+ * mounts alone. The rules and answers match the servlet chain: Basic credentials checked once and
+ * cached in the shared {@link VerifiedCredentials}, bearer tokens verified in line, 403 for missing
+ * or rejected credentials and no sessions.
+ */
+@Configuration
+public class ReactiveSecurityConfig {
+
+    private final UserDetailsService userDetailsService;
+    private final VerifiedCredentials verifiedCredentials;
+    private final BearerTokens bearerTokens;
+
+    @Autowired
+    public ReactiveSecurityConfig(UserDetailsService userDetailsService,
+                                  VerifiedCredentials verifiedCredentials,
+                                  BearerTokens bearerTokens) {
+        this.userDetailsService = userDetailsService;
+        this.verifiedCredentials = verifiedCredentials;
+        this.bearerTokens = bearerTokens;
+    }
+
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public SecurityWebFilterChain reactiveSecurityChain() {
+        ServerAuthenticationEntryPoint forbidden =
+                (exchange, e) -> Mono.fromRunnable(() -> exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN));
+
+        AuthenticationWebFilter basic = new AuthenticationWebFilter(new CachingReactiveAuthenticationManager(
+                new UserDetailsRepositoryReactiveAuthenticationManager(users()),
+                verifiedCredentials));
+        basic.setAuthenticationConverter(new ServerHttpBasicAuthenticationConverter());
+        basic.setAuthenticationFailureHandler(new ServerAuthenticationEntryPointFailureHandler(forbidden));
+        basic.setSecurityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+
+        ServerHttpSecurity http = ServerHttpSecurity.http();
+        http.authorizeExchange()
+                .pathMatchers(HttpMethod.GET, "/reactive/customers", "/reactive/customers/*").permitAll()
+                .anyExchange().authenticated();
+        http.addFilterAt(new BearerTokenAuthenticationWebFilter(bearerTokens), SecurityWebFiltersOrder.AUTHENTICATION);
+        http.addFilterAt(basic, SecurityWebFiltersOrder.HTTP_BASIC);
+        http.httpBasic().disable();
+        http.exceptionHandling().authenticationEntryPoint(forbidden);
+        http.securityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+        http.requestCache().requestCache(NoOpServerRequestCache.getInstance());
+        http.csrf().disable();
+        http.logout().disable();
+        return http.build();
+    }
+
+    /**
+     * The user store is the in-memory one Boot builds from {@code spring.security.user.*}, so
+     * looking a user up is a map read and is done on the calling thread.
+     */
+    private ReactiveUserDetailsService users() {
+        return username -> Mono.fromCallable(() -> userDetailsService.loadUserByUsername(username))
+                .onErrorResume(UsernameNotFoundException.class, e -> Mono.empty());
+    }
+}
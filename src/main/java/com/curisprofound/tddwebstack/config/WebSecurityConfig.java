@@ -1,12 +1,56 @@
 package com.curisprofound.tddwebstack.config;
 
+import com.curisprofound.tddwebstack.security.BearerTokenAuthenticationFilter;
+import com.curisprofound.tddwebstack.security.BearerTokens;
+import com.curisprofound.tddwebstack.security.CachingAuthenticationProvider;
+import com.curisprofound.tddwebstack.security.VerifiedCredentials;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.HttpSecurityBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.authentication.Http403ForbiddenEntryPoint;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
+/**
+ * Basic credentials are checked against the {@link UserDetailsService} once and then cached, and
+ * signed bearer tokens from {@code /auth/token} authenticate without any lookup, so the API keeps
+ * no sessions. Missing or rejected Basic credentials are still answered with 403. The servlets
+ * mounting the functional routes are left to {@link ReactiveSecurityConfig}.
+ */
 @Configuration
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
+
+    private final UserDetailsService userDetailsService;
+    private final VerifiedCredentials verifiedCredentials;
+    private final BearerTokens bearerTokens;
+
+    @Autowired
+    public WebSecurityConfig(UserDetailsService userDetailsService,
+                             VerifiedCredentials verifiedCredentials,
+                             BearerTokens bearerTokens) {
+        this.userDetailsService = userDetailsService;
+        this.verifiedCredentials = verifiedCredentials;
+        this.bearerTokens = bearerTokens;
+    }
+
+    @Override
+    protected void configure(AuthenticationManagerBuilder auth) {
+        DaoAuthenticationProvider passwords = new DaoAuthenticationProvider();
+        passwords.setUserDetailsService(userDetailsService);
+        auth.authenticationProvider(new CachingAuthenticationProvider(passwords, verifiedCredentials));
+    }
+
+    @Override
+    public void configure(WebSecurity web) {
+        web.ignoring().antMatchers("/books/**", "/publishers/**", "/reactive/**");
+    }
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http.authorizeRequests()
@@ -14,6 +58,9 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers("/customers").permitAll()
                 .anyRequest().authenticated()
                 .and().logout().permitAll();
+        http.httpBasic().authenticationEntryPoint(new Http403ForbiddenEntryPoint());
+        http.addFilterBefore(new BearerTokenAuthenticationFilter(bearerTokens), BasicAuthenticationFilter.class);
+        http.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
         http.csrf().disable();
         http.headers().frameOptions().disable();
 
@@ -1,32 +1,196 @@
 package com.curisprofound.tddwebstack.controllers;
 
 import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.BookChange;
 import com.curisprofound.tddwebstack.db.BookRepository;
-import org.omg.CORBA.ServerRequest;
+import com.curisprofound.tddwebstack.metrics.RouteMetrics;
+import com.curisprofound.tddwebstack.services.BookChangeFeed;
+import com.curisprofound.tddwebstack.services.BookImportReport;
+import com.curisprofound.tddwebstack.services.BookImportService;
+import com.curisprofound.tddwebstack.services.CatalogVersions;
+import com.curisprofound.tddwebstack.services.PublisherBooks;
+import com.curisprofound.tddwebstack.services.PublisherResolver;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.curisprofound.tddwebstack.controllers.CustomerController.APPLICATION_SMILE;
+import static org.springframework.web.reactive.function.server.ServerResponse.badRequest;
+import static org.springframework.web.reactive.function.server.ServerResponse.created;
+import static org.springframework.web.reactive.function.server.ServerResponse.noContent;
+import static org.springframework.web.reactive.function.server.ServerResponse.notFound;
 import static org.springframework.web.reactive.function.server.ServerResponse.ok;
+import static org.springframework.web.reactive.function.server.ServerResponse.status;
 
 @Component
 public class BookHandler {
 
+    private static final List<MediaType> STREAMING_TYPES = Arrays.asList(
+            MediaType.APPLICATION_STREAM_JSON,
+            MediaType.TEXT_EVENT_STREAM);
+
+    private static final List<MediaType> LISTING_TYPES = Arrays.asList(
+            APPLICATION_SMILE,
+            MediaType.APPLICATION_STREAM_JSON,
+            MediaType.TEXT_EVENT_STREAM);
+
     private final BookRepository bookRepository;
+    private final PublisherResolver publisherResolver;
+    private final BookImportService bookImportService;
+    private final CatalogVersions catalogVersions;
+    private final BookChangeFeed bookChangeFeed;
+    private final PublisherBooks publisherBooks;
 
 
-    public BookHandler(BookRepository bookRepository) {
+    public BookHandler(BookRepository bookRepository,
+                       PublisherResolver publisherResolver,
+                       BookImportService bookImportService,
+                       CatalogVersions catalogVersions,
+                       BookChangeFeed bookChangeFeed,
+                       PublisherBooks publisherBooks) {
         this.bookRepository = bookRepository;
+        this.publisherResolver = publisherResolver;
+        this.bookImportService = bookImportService;
+        this.catalogVersions = catalogVersions;
+        this.bookChangeFeed = bookChangeFeed;
+        this.publisherBooks = publisherBooks;
     }
 
+    /**
+     * The JSON and Smile listings carry an entity tag and {@code Last-Modified}, and are answered
+     * with 304 before any book is read when neither changed; streamed listings are not validated.
+     */
     public Mono<ServerResponse> getAll(ServerRequest request){
+        MediaType type = listingType(request);
+        if (STREAMING_TYPES.contains(type))
+            return ok()
+                    .contentType(type)
+                    .body(allBooks(request), Book.class);
+        return catalogVersions.listing()
+                .flatMap(version -> ConditionalRequests.notModified(request, version.getEtag(), version.getLastModified()) ?
+                        ConditionalRequests.notModifiedResponse(version.getEtag(), version.getLastModified()) :
+                        ok().contentType(type)
+                                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                                .eTag(version.getEtag())
+                                .lastModified(ZonedDateTime.ofInstant(version.getLastModified(), ZoneOffset.UTC))
+                                .body(allBooks(request), Book.class));
+    }
+
+    public Mono<ServerResponse> getById(ServerRequest request) {
+        String id = request.pathVariable("id");
+        return catalogVersions.bookTag(id)
+                .flatMap(tag -> ConditionalRequests.notModified(request, tag) ?
+                        ConditionalRequests.notModifiedResponse(tag, null) :
+                        publisherResolver.resolve(bookRepository.findById(id).flux())
+                                .next()
+                                .flatMap(book -> ok().contentType(MediaType.APPLICATION_JSON).eTag(tag).syncBody(book)))
+                .switchIfEmpty(notFound().build());
+    }
+
+    /**
+     * Posting an id that already exists replaces the book, as it did before books were versioned:
+     * the stored version is taken over, so the save updates the document instead of inserting it
+     * again. A save racing another writer of the same id is tried once more and then answered with
+     * a conflict. The book is listed with its publisher before the response is written.
+     */
+    public Mono<ServerResponse> create(ServerRequest request) {
+        return request.bodyToMono(Book.class)
+                .flatMap(book -> upsert(book).retry(1, BookHandler::lostRace))
+                .flatMap(book -> publisherBooks.added(book).thenReturn(book))
+                .flatMap(book -> created(location(request, book))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .syncBody(book))
+                .onErrorResume(BookHandler::lostRace, e -> status(HttpStatus.CONFLICT).build());
+    }
+
+    /**
+     * Takes a JSON array or newline delimited books; the body is decoded as a stream,
+     * so the import starts writing before the upload is complete.
+     */
+    public Mono<ServerResponse> importBooks(ServerRequest request) {
         return ok()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(bookRepository.findAll(), Book.class);
+                .body(bookImportService.importBooks(request.bodyToFlux(Book.class)), BookImportReport.class);
     }
 
+    /**
+     * Server-sent events for every book and publisher written from now on. {@code overflow=drop}
+     * keeps what a slow client has buffered and drops newer changes; the default, {@code latest},
+     * drops the oldest buffered ones instead.
+     */
+    public Mono<ServerResponse> changes(ServerRequest request) {
+        BookChangeFeed.Overflow overflow;
+        try {
+            overflow = BookChangeFeed.Overflow.valueOf(request.queryParam("overflow").orElse("latest").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return badRequest().build();
+        }
+        Flux<ServerSentEvent<BookChange>> events = bookChangeFeed.changes(overflow)
+                .map(change -> ServerSentEvent.builder(change)
+                        .id(change.getId())
+                        .event(change.getType())
+                        .build());
+        return ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(BodyInserters.fromServerSentEvents(events));
+    }
 
+    public Mono<ServerResponse> delete(ServerRequest request) {
+        String id = request.pathVariable("id");
+        return bookRepository.deleteById(id)
+                .then(publisherBooks.removed(id))
+                .then(noContent().build());
+    }
+
+    /**
+     * Streaming types and Smile are only chosen when asked for explicitly; a wildcard or
+     * missing Accept header gets the plain JSON array.
+     */
+    static MediaType listingType(ServerRequest request) {
+        return ListingTypes.negotiate(request, LISTING_TYPES);
+    }
+
+    private Mono<Book> upsert(Book book) {
+        if (book.getId() == null)
+            return bookRepository.save(book);
+        return bookRepository.findById(book.getId())
+                .map(stored -> Optional.ofNullable(stored.getVersion()))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(version -> {
+                    book.setVersion(version.orElse(null));
+                    return bookRepository.save(book);
+                });
+    }
 
+    private static boolean lostRace(Throwable e) {
+        return e instanceof DuplicateKeyException || e instanceof OptimisticLockingFailureException;
+    }
+
+    private Flux<Book> allBooks(ServerRequest request) {
+        return RouteMetrics.countRows(request, publisherResolver.resolve(bookRepository.findAll()));
+    }
+
+    private static URI location(ServerRequest request, Book book) {
+        return UriComponentsBuilder.fromUri(request.uri())
+                .path("/{id}")
+                .buildAndExpand(book.getId())
+                .toUri();
+    }
 }
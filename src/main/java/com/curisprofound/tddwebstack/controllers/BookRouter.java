@@ -1,4 +1,62 @@
 package com.curisprofound.tddwebstack.controllers;
 
+import com.curisprofound.tddwebstack.metrics.RouteMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static com.curisprofound.tddwebstack.controllers.CustomerController.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
+import static org.springframework.web.reactive.function.server.RequestPredicates.DELETE;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+@Configuration
 public class BookRouter {
+
+    private final RouteMetrics routeMetrics;
+
+    @Autowired
+    public BookRouter(RouteMetrics routeMetrics) {
+        this.routeMetrics = routeMetrics;
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> bookRoutes(BookHandler bookHandler) {
+        return route(GET("/books"), bookHandler::getAll)
+                .filter(routeMetrics.route("/books"))
+                .and(route(GET("/books/changes"), bookHandler::changes)
+                        .filter(routeMetrics.route("/books/changes")))
+                .and(route(GET("/books/{id}"), bookHandler::getById)
+                        .filter(routeMetrics.route("/books/{id}")))
+                .and(route(POST("/books/import").and(contentType(APPLICATION_JSON, APPLICATION_STREAM_JSON, APPLICATION_NDJSON)),
+                        bookHandler::importBooks)
+                        .filter(routeMetrics.route("/books/import")))
+                .and(route(POST("/books").and(contentType(APPLICATION_JSON)), bookHandler::create)
+                        .filter(routeMetrics.route("/books")))
+                .and(route(DELETE("/books/{id}"), bookHandler::delete)
+                        .filter(routeMetrics.route("/books/{id}")));
+    }
+
+    /**
+     * Declared as its own bean so the fixed {@code /books/by-*} paths are matched before
+     * {@code /books/{id}} takes them for an id.
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public RouterFunction<ServerResponse> bookStatsRoutes(BookStatsHandler bookStatsHandler) {
+        return route(GET("/books/by-author"), bookStatsHandler::booksPerAuthor)
+                .filter(routeMetrics.route("/books/by-author"))
+                .and(route(GET("/books/by-publisher"), bookStatsHandler::booksPerPublisher)
+                        .filter(routeMetrics.route("/books/by-publisher")))
+                .and(route(GET("/publishers/by-postal-code"), bookStatsHandler::publishersPerPostalCode)
+                        .filter(routeMetrics.route("/publishers/by-postal-code")));
+    }
 }
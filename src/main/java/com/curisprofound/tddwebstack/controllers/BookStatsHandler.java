@@ -0,0 +1,48 @@
+package com.curisprofound.tddwebstack.controllers;
+
+import com.curisprofound.tddwebstack.metrics.RouteMetrics;
+import com.curisprofound.tddwebstack.services.AuthorBookCount;
+import com.curisprofound.tddwebstack.services.BookStatsService;
+import com.curisprofound.tddwebstack.services.PostalCodePublisherCount;
+import com.curisprofound.tddwebstack.services.PublisherBookCount;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.web.reactive.function.server.ServerResponse.ok;
+
+/**
+ * Catalog statistics, written out as the aggregation cursor produces them. Like the book
+ * listing, they are a JSON array unless a streaming type is asked for.
+ */
+@Component
+public class BookStatsHandler {
+
+    private final BookStatsService bookStatsService;
+
+    @Autowired
+    public BookStatsHandler(BookStatsService bookStatsService) {
+        this.bookStatsService = bookStatsService;
+    }
+
+    public Mono<ServerResponse> booksPerAuthor(ServerRequest request) {
+        return listing(request, bookStatsService.booksPerAuthor(), AuthorBookCount.class);
+    }
+
+    public Mono<ServerResponse> booksPerPublisher(ServerRequest request) {
+        return listing(request, bookStatsService.booksPerPublisher(), PublisherBookCount.class);
+    }
+
+    public Mono<ServerResponse> publishersPerPostalCode(ServerRequest request) {
+        return listing(request, bookStatsService.publishersPerPostalCode(), PostalCodePublisherCount.class);
+    }
+
+    private static <T> Mono<ServerResponse> listing(ServerRequest request, Flux<T> rows, Class<T> type) {
+        return ok()
+                .contentType(BookHandler.listingType(request))
+                .body(RouteMetrics.countRows(request, rows), type);
+    }
+}
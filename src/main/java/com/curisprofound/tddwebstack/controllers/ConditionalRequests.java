@@ -0,0 +1,49 @@
+package com.curisprofound.tddwebstack.controllers;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Validation of {@code If-None-Match} and {@code If-Modified-Since} for the functional routes,
+ * which unlike MVC get no {@code checkNotModified} of their own. Entity tags are compared weakly,
+ * and {@code If-Modified-Since} is only consulted when the request carries no entity tags.
+ */
+final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    static boolean notModified(ServerRequest request, String etag) {
+        return notModified(request, etag, null);
+    }
+
+    static boolean notModified(ServerRequest request, String etag, Instant lastModified) {
+        HttpHeaders headers = request.headers().asHttpHeaders();
+        List<String> ifNoneMatch = headers.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty())
+            return ifNoneMatch.stream().anyMatch(candidate -> "*".equals(candidate) || opaque(candidate).equals(opaque(etag)));
+        long ifModifiedSince = headers.getIfModifiedSince();
+        return lastModified != null && ifModifiedSince >= 0 &&
+                !lastModified.truncatedTo(ChronoUnit.SECONDS).isAfter(Instant.ofEpochMilli(ifModifiedSince));
+    }
+
+    static Mono<ServerResponse> notModifiedResponse(String etag, Instant lastModified) {
+        ServerResponse.BodyBuilder response = ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag);
+        if (lastModified != null)
+            response.lastModified(ZonedDateTime.ofInstant(lastModified, ZoneOffset.UTC));
+        return response.build();
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,66 @@
+package com.curisprofound.tddwebstack.controllers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * RFC 4180 rows: fields holding a comma, quote or line break are quoted, nulls are empty
+ * and dates are written as ISO-8601 instants.
+ */
+class CsvWriter {
+
+    private final Writer out;
+    private final int flushEvery;
+    private long count;
+
+    CsvWriter(OutputStream out, int flushEvery, String... header) {
+        this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        this.flushEvery = flushEvery;
+        row((Object[]) header);
+    }
+
+    void write(Object... fields) {
+        row(fields);
+        if (++count % flushEvery == 0)
+            flush();
+    }
+
+    void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    private void row(Object... fields) {
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0)
+                    out.write(',');
+                out.write(field(fields[i]));
+            }
+            out.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String field(Object value) {
+        if (value == null)
+            return "";
+        String text = value instanceof Date ? ((Date) value).toInstant().toString() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0)
+            return text;
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,38 +1,208 @@
 package com.curisprofound.tddwebstack.controllers;
 
 import com.curisprofound.tddwebstack.db.Customer;
-import com.curisprofound.tddwebstack.db.CustomerRepository;
+import com.curisprofound.tddwebstack.db.CustomerInvoiceSummary;
+import com.curisprofound.tddwebstack.db.CustomerSummary;
+import com.curisprofound.tddwebstack.services.CustomerIngestService;
+import com.curisprofound.tddwebstack.services.CustomerService;
+import com.curisprofound.tddwebstack.services.CustomerView;
+import com.curisprofound.tddwebstack.services.IngestReport;
+import com.curisprofound.tddwebstack.services.SparseFields;
+import com.curisprofound.tddwebstack.services.Tagged;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.reactive.function.server.*;
-import org.springframework.web.reactive.function.server.support.RouterFunctionMapping;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
-
-import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
-import static org.springframework.web.reactive.function.server.RouterFunctions.nest;
-import static org.springframework.web.reactive.function.server.ServerResponse.ok;
+import java.util.function.Function;
 
 @RestController
 public class CustomerController {
 
-    private final CustomerRepository customerRepository;
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private static final int FLUSH_EVERY = 100;
+
+    private final CustomerService customerService;
+    private final CustomerIngestService customerIngestService;
+    private final ObjectMapper objectMapper;
+    private final int maxPageSize;
 
     @Autowired
-    public CustomerController(CustomerRepository customerRepository) {
-        this.customerRepository = customerRepository;
+    public CustomerController(CustomerService customerService,
+                              CustomerIngestService customerIngestService,
+                              ObjectMapper objectMapper,
+                              @Value("${customers.page.max-size:1000}") int maxPageSize) {
+        this.customerService = customerService;
+        this.customerIngestService = customerIngestService;
+        this.objectMapper = objectMapper;
+        this.maxPageSize = maxPageSize;
     }
 
+    /**
+     * A matching {@code If-None-Match} is answered with 304 from the customer revision alone.
+     */
     @GetMapping("/customers")
-    public List<Customer> getAllCustomers(){
-        return customerRepository.findAll();
+    public ResponseEntity<List<Customer>> getAllCustomers(WebRequest request){
+        Tagged<List<Customer>> customers = customerService.getAll(request::checkNotModified);
+        if (!customers.isModified())
+            return null;
+        return ResponseEntity.ok(customers.getBody());
+    }
+
+    /**
+     * {@code fields} narrows the full view to the properties listed, e.g. {@code id,name,invoices.date};
+     * collections outside it are neither loaded nor written.
+     */
+    @GetMapping(value = "/customers", params = "size")
+    public ResponseEntity<List<?>> getCustomerPage(@RequestParam(value = "after", required = false) Long after,
+                                                   @RequestParam("size") int size,
+                                                   @RequestParam(value = "view", defaultValue = "full") String view,
+                                                   @RequestParam(value = "fields", required = false) String fields,
+                                                   WebRequest request) {
+        long start = after == null ? Long.MIN_VALUE : after;
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        CustomerView customerView = toView(view);
+        if (fields != null) {
+            SparseFields sparse = toFields(fields, customerView);
+            Tagged<List<Customer>> page = customerService.getPage(start, pageSize, sparse, request::checkNotModified);
+            if (!page.isModified())
+                return null;
+            return pageResponse(page.getBody(), (List<?>) sparse.project(page.getBody()), pageSize, Customer::getId);
+        }
+        if (customerView == CustomerView.SUMMARY) {
+            Tagged<List<CustomerSummary>> page = customerService.getSummaryPage(start, pageSize, request::checkNotModified);
+            if (!page.isModified())
+                return null;
+            return pageResponse(page.getBody(), pageSize, CustomerSummary::getId);
+        }
+        Tagged<List<Customer>> page = customerService.getPage(start, pageSize, SparseFields.ALL, request::checkNotModified);
+        if (!page.isModified())
+            return null;
+        return pageResponse(page.getBody(), pageSize, Customer::getId);
+    }
+
+    @GetMapping(value = "/customers", produces = {APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamCustomers(@RequestParam(value = "after", required = false) Long after,
+                                                                 @RequestParam(value = "view", defaultValue = "full") String view,
+                                                                 @RequestParam(value = "fields", required = false) String fields,
+                                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        long start = after == null ? Long.MIN_VALUE : after;
+        CustomerView customerView = toView(view);
+        SparseFields sparse = fields == null ? null : toFields(fields, customerView);
+        MediaType contentType = accept != null && accept.contains(MediaType.APPLICATION_STREAM_JSON_VALUE) ?
+                MediaType.APPLICATION_STREAM_JSON :
+                APPLICATION_NDJSON;
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(out, objectMapper.writer(), FLUSH_EVERY);
+            if (sparse != null)
+                customerService.stream(start, sparse, customer -> writer.write(sparse.project(customer)));
+            else
+                customerService.stream(start, customerView, writer::write);
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(contentType).body(body);
+    }
+
+    @GetMapping("/customers/invoice-summaries")
+    public Page<CustomerInvoiceSummary> getInvoiceSummaries(@PageableDefault(size = 100, sort = "id") Pageable pageable) {
+        try {
+            return customerService.getInvoiceSummaries(pageable);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
     @PutMapping("/customer")
     public Customer saveCustomer(@RequestBody Customer customer){
-        return customerRepository.save(customer);
+        try {
+            return customerService.save(customer);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Customer " + customer.getId() + " was changed since version " + customer.getVersion(), e);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Accepts either one JSON array or newline delimited customers and reads them off the
+     * request one at a time, so the payload is never held in memory as a whole.
+     */
+    @PostMapping(value = "/customers/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+    public IngestReport bulkSaveCustomers(InputStream body) throws IOException {
+        try (MappingIterator<Customer> customers = objectMapper.readerFor(Customer.class).readValues(body)) {
+            return customerIngestService.ingest(customers);
+        } catch (RuntimeJsonMappingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed customer: " + e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private <T> ResponseEntity<List<?>> pageResponse(List<T> page, int size, Function<T, Long> id) {
+        return pageResponse(page, page, size, id);
+    }
+
+    private <T> ResponseEntity<List<?>> pageResponse(List<T> page, List<?> body, int size, Function<T, Long> id) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == size)
+            response.header(HttpHeaders.LINK, nextPageLink(id.apply(page.get(page.size() - 1)), size));
+        return response.body(body);
+    }
+
+    private CustomerView toView(String view) {
+        try {
+            return CustomerView.valueOf(view.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown customer view: " + view);
+        }
+    }
+
+    /**
+     * Fieldsets select from the full view; a summary is already as narrow as it gets.
+     */
+    private SparseFields toFields(String fields, CustomerView view) {
+        if (view != CustomerView.FULL)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fields applies to the full view only");
+        try {
+            return SparseFields.parse(fields, Customer.class);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private String nextPageLink(long lastId, int size) {
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", lastId)
+                .replaceQueryParam("size", size)
+                .toUriString();
+        return "<" + next + ">; rel=\"next\"";
     }
 }
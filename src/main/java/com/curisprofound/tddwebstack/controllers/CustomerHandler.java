@@ -0,0 +1,144 @@
+package com.curisprofound.tddwebstack.controllers;
+
+import com.curisprofound.tddwebstack.db.Customer;
+import com.curisprofound.tddwebstack.metrics.RouteMetrics;
+import com.curisprofound.tddwebstack.services.CustomerService;
+import com.curisprofound.tddwebstack.services.SparseFields;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.springframework.web.reactive.function.server.ServerResponse.badRequest;
+import static org.springframework.web.reactive.function.server.ServerResponse.notFound;
+import static org.springframework.web.reactive.function.server.ServerResponse.ok;
+import static org.springframework.web.reactive.function.server.ServerResponse.status;
+
+/**
+ * Reactive face of the JPA customers. Every repository call runs on the bounded
+ * {@code jdbcScheduler} and every collection the response writes is initialized there, so
+ * serializing the entities never goes back to the database on a request thread.
+ */
+@Component
+public class CustomerHandler {
+
+    private static final List<MediaType> LISTING_TYPES = Arrays.asList(
+            CustomerController.APPLICATION_SMILE,
+            MediaType.APPLICATION_STREAM_JSON);
+
+    private final CustomerService customerService;
+    private final Scheduler jdbcScheduler;
+    private final int pageSize;
+
+    @Autowired
+    public CustomerHandler(CustomerService customerService,
+                           @Qualifier("jdbcScheduler") Scheduler jdbcScheduler,
+                           @Value("${customers.page.max-size:1000}") int pageSize) {
+        this.customerService = customerService;
+        this.jdbcScheduler = jdbcScheduler;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Streamed, the table is walked one keyset page at a time and the next page is only read once
+     * the subscriber has taken the previous one. Otherwise the listing is read whole in the
+     * transaction of its tag. {@code fields} narrows what is loaded and written, as on the MVC
+     * listing.
+     */
+    public Mono<ServerResponse> getAll(ServerRequest request) {
+        long after;
+        SparseFields fields;
+        try {
+            after = request.queryParam("after").map(Long::parseLong).orElse(Long.MIN_VALUE);
+            fields = fields(request);
+        } catch (IllegalArgumentException e) {
+            return badRequest().build();
+        }
+        MediaType type = listingType(request);
+        if (MediaType.APPLICATION_STREAM_JSON.equals(type)) {
+            Flux<Object> customers = page(after, fields)
+                    .expand(batch -> batch.size() < pageSize ?
+                            Mono.empty() :
+                            page(batch.get(batch.size() - 1).getId(), fields))
+                    .flatMapIterable(batch -> batch)
+                    .map(fields::project);
+            return ok()
+                    .contentType(MediaType.APPLICATION_STREAM_JSON)
+                    .body(RouteMetrics.countRows(request, customers), Object.class);
+        }
+        return onJdbc(() -> customerService.getAll(after, fields, tag -> ConditionalRequests.notModified(request, tag)))
+                .flatMap(customers -> !customers.isModified() ?
+                        ConditionalRequests.notModifiedResponse(customers.getEtag(), null) :
+                        ok().contentType(type)
+                                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                                .eTag(customers.getEtag())
+                                .body(RouteMetrics.countRows(request, Flux.fromIterable(customers.getBody()).map(fields::project)), Object.class))
+                .onErrorResume(RejectedExecutionException.class, e -> busy());
+    }
+
+    /**
+     * A matching {@code If-None-Match} is answered from the customer revision without loading
+     * the customer.
+     */
+    public Mono<ServerResponse> getById(ServerRequest request) {
+        long id;
+        SparseFields fields;
+        try {
+            id = Long.parseLong(request.pathVariable("id"));
+            fields = fields(request);
+        } catch (IllegalArgumentException e) {
+            return badRequest().build();
+        }
+        return onJdbc(() -> customerService.getById(id, fields, tag -> ConditionalRequests.notModified(request, tag)).orElse(null))
+                .flatMap(customer -> !customer.isModified() ?
+                        ConditionalRequests.notModifiedResponse(customer.getEtag(), null) :
+                        ok().contentType(MediaType.APPLICATION_JSON).eTag(customer.getEtag()).syncBody(fields.project(customer.getBody())))
+                .switchIfEmpty(notFound().build())
+                .onErrorResume(RejectedExecutionException.class, e -> busy());
+    }
+
+    public Mono<ServerResponse> save(ServerRequest request) {
+        return request.bodyToMono(Customer.class)
+                .flatMap(customer -> onJdbc(() -> customerService.save(customer)))
+                .flatMap(customer -> ok().contentType(MediaType.APPLICATION_JSON).syncBody(customer))
+                .onErrorResume(ObjectOptimisticLockingFailureException.class, e -> status(HttpStatus.CONFLICT).build())
+                .onErrorResume(IllegalArgumentException.class, e -> badRequest().build())
+                .onErrorResume(RejectedExecutionException.class, e -> busy());
+    }
+
+    private Mono<List<Customer>> page(long after, SparseFields fields) {
+        return onJdbc(() -> customerService.getPage(after, pageSize, fields));
+    }
+
+    private static SparseFields fields(ServerRequest request) {
+        return request.queryParam("fields")
+                .map(spec -> SparseFields.parse(spec, Customer.class))
+                .orElse(SparseFields.ALL);
+    }
+
+    private <T> Mono<T> onJdbc(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(jdbcScheduler);
+    }
+
+    private static Mono<ServerResponse> busy() {
+        return status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    private static MediaType listingType(ServerRequest request) {
+        return ListingTypes.negotiate(request, LISTING_TYPES);
+    }
+}
@@ -0,0 +1,35 @@
+package com.curisprofound.tddwebstack.controllers;
+
+import com.curisprofound.tddwebstack.metrics.RouteMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PUT;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+@Configuration
+public class CustomerRouter {
+
+    private final RouteMetrics routeMetrics;
+
+    @Autowired
+    public CustomerRouter(RouteMetrics routeMetrics) {
+        this.routeMetrics = routeMetrics;
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> customerRoutes(CustomerHandler customerHandler) {
+        return route(GET("/reactive/customers"), customerHandler::getAll)
+                .filter(routeMetrics.route("/reactive/customers"))
+                .and(route(GET("/reactive/customers/{id}"), customerHandler::getById)
+                        .filter(routeMetrics.route("/reactive/customers/{id}")))
+                .and(route(PUT("/reactive/customer").and(contentType(APPLICATION_JSON)), customerHandler::save)
+                        .filter(routeMetrics.route("/reactive/customer")));
+    }
+}
@@ -0,0 +1,75 @@
+package com.curisprofound.tddwebstack.controllers;
+
+import com.curisprofound.tddwebstack.services.InvoiceExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import static com.curisprofound.tddwebstack.controllers.CustomerController.APPLICATION_NDJSON;
+import static com.curisprofound.tddwebstack.controllers.CustomerController.APPLICATION_NDJSON_VALUE;
+
+/**
+ * Bulk export of invoice lines. Both formats are written while the cursor is read and
+ * flushed every {@value #FLUSH_EVERY} lines, so neither side holds the export in memory.
+ */
+@RestController
+public class InvoiceController {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
+    private static final int FLUSH_EVERY = 500;
+
+    private final InvoiceExportService invoiceExportService;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public InvoiceController(InvoiceExportService invoiceExportService, ObjectMapper objectMapper) {
+        this.invoiceExportService = invoiceExportService;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping(value = "/invoices/export", produces = {APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportInvoices(@RequestParam(value = "after", required = false) Long after,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        long start = after == null ? Long.MIN_VALUE : after;
+        MediaType contentType = accept != null && accept.contains(MediaType.APPLICATION_STREAM_JSON_VALUE) ?
+                MediaType.APPLICATION_STREAM_JSON :
+                APPLICATION_NDJSON;
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(out, objectMapper.writer(), FLUSH_EVERY);
+            invoiceExportService.export(start, writer::write);
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(contentType).body(body);
+    }
+
+    @GetMapping(value = "/invoices/export", produces = TEXT_CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportInvoicesAsCsv(@RequestParam(value = "after", required = false) Long after) {
+        long start = after == null ? Long.MIN_VALUE : after;
+        StreamingResponseBody body = out -> {
+            CsvWriter writer = new CsvWriter(out, FLUSH_EVERY,
+                    "invoiceId", "date", "place", "customerId", "productId", "productName", "productNumber");
+            invoiceExportService.export(start, line -> writer.write(
+                    line.getInvoiceId(),
+                    line.getDate(),
+                    line.getPlace(),
+                    line.getCustomerId(),
+                    line.getProductId(),
+                    line.getProductName(),
+                    line.getProductNumber()));
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"invoices.csv\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,36 @@
+package com.curisprofound.tddwebstack.controllers;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Content negotiation of the functional listings. Accepted types are compared by type and subtype,
+ * so parameters such as a charset or quality do not keep a type from matching, and are tried from
+ * the most specific and preferred down. The types beyond plain JSON are only chosen when asked for
+ * explicitly; a wildcard, a missing Accept header or one that names none of them gets JSON.
+ */
+final class ListingTypes {
+
+    private ListingTypes() {
+    }
+
+    static MediaType negotiate(ServerRequest request, List<MediaType> offered) {
+        List<MediaType> accepted = new ArrayList<>(request.headers().accept());
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            if (type.isWildcardType() || type.isWildcardSubtype())
+                break;
+            if (type.getQualityValue() == 0)
+                continue;
+            if (MediaType.APPLICATION_JSON.isCompatibleWith(type))
+                break;
+            for (MediaType candidate : offered)
+                if (candidate.isCompatibleWith(type))
+                    return candidate;
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+}
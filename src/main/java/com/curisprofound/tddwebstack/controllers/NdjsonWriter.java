@@ -0,0 +1,36 @@
+package com.curisprofound.tddwebstack.controllers;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+class NdjsonWriter {
+
+    private final OutputStream out;
+    private final ObjectWriter writer;
+    private final int flushEvery;
+    private long count;
+
+    NdjsonWriter(OutputStream out, ObjectWriter writer, int flushEvery) {
+        this.out = out;
+        this.writer = writer;
+        this.flushEvery = flushEvery;
+    }
+
+    void write(Object value) {
+        try {
+            out.write(writer.writeValueAsBytes(value));
+            out.write('\n');
+            if (++count % flushEvery == 0)
+                out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,33 @@
+package com.curisprofound.tddwebstack.controllers;
+
+import com.curisprofound.tddwebstack.security.BearerTokens;
+import com.curisprofound.tddwebstack.security.IssuedToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+public class TokenController {
+
+    private final BearerTokens bearerTokens;
+
+    @Autowired
+    public TokenController(BearerTokens bearerTokens) {
+        this.bearerTokens = bearerTokens;
+    }
+
+    /**
+     * Trades credentials for a bearer token. A token cannot be traded for a fresh one, so a
+     * leaked token still expires.
+     */
+    @PostMapping("/auth/token")
+    public IssuedToken issueToken(Authentication authentication) {
+        if (authentication instanceof PreAuthenticatedAuthenticationToken)
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bearer tokens are issued for credentials only");
+        return bearerTokens.issue(authentication);
+    }
+}
@@ -3,24 +3,38 @@ package com.curisprofound.tddwebstack.db;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.persistence.Id;
+import java.util.Date;
 import java.util.Map;
 
 @Document
+@CompoundIndexes({
+        @CompoundIndex(name = "author_name_title", def = "{'author.name': 1, 'title': 1}"),
+        @CompoundIndex(name = "publisher_id", def = "{'publisher.$id': 1}")
+})
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
 public class Book {
     @Id
     private String id;
+    @Indexed(name = "title")
     private String title;
     private Author author;
 
-    @DBRef
+    @DBRef(lazy = true)
     private Publisher publisher;
 
+    @Version
+    private Long version;
+    @Indexed(name = "lastModified")
+    private Date lastModified;
 
 }
@@ -0,0 +1,37 @@
+package com.curisprofound.tddwebstack.db;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import javax.persistence.Id;
+import java.util.Date;
+
+/**
+ * One write to the catalog, kept in a capped collection that the change feed tails. The
+ * {@code documentId} is missing when a delete matched by anything other than a single id.
+ */
+@Document(collection = BookChange.COLLECTION)
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class BookChange {
+
+    public static final String COLLECTION = "bookChanges";
+
+    public enum Operation {
+        SAVED, DELETED
+    }
+
+    @Id
+    private String id;
+    private String type;
+    private String documentId;
+    private Operation operation;
+    private Date at;
+
+    public static BookChange of(String type, String documentId, Operation operation) {
+        return new BookChange(null, type, documentId, operation, new Date());
+    }
+}
@@ -1,6 +1,11 @@
 package com.curisprofound.tddwebstack.db;
 
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
 
 public interface BookRepository extends ReactiveMongoRepository<Book,String> {
+
+    Flux<Book> findByTitle(String title);
+
+    Flux<Book> findByAuthorName(String name);
 }
@@ -3,6 +3,7 @@ package com.curisprofound.tddwebstack.db;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -11,29 +12,42 @@ import java.util.List;
 import java.util.Map;
 
 @Entity
+@Table(indexes = @Index(name = "idx_customer_name", columnList = "name"))
+@NamedEntityGraph(name = Customer.DETAIL_GRAPH, attributeNodes = @NamedAttributeNode("shippingContact"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
 public class Customer {
+    public static final String DETAIL_GRAPH = "Customer.detail";
+
     @Id
     private long id;
     private String name;
 
     @ElementCollection
+    @BatchSize(size = 100)
     private List<String> phoneNumbers;
 
     @ElementCollection
+    @CollectionTable(indexes = @Index(name = "idx_customer_addresses_postal_code", columnList = "postalCode"))
+    @BatchSize(size = 100)
     private List<Address> addresses;
 
     @ElementCollection
+    @BatchSize(size = 100)
     private Map<String, String> mealPreferences;
 
     @OneToOne
     private ShippingContact shippingContact;
 
     @OneToMany
+    @JoinTable(indexes = @Index(name = "idx_customer_invoices_customer_invoice", columnList = "customer_id, invoices_id"))
+    @BatchSize(size = 100)
     private  List<Invoice> invoices;
 
+    @Version
+    private long version;
+
     public List<String> getPhoneNumbers(){
         if(phoneNumbers == null)
             phoneNumbers = new ArrayList<>();
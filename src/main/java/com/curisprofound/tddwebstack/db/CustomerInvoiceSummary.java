@@ -0,0 +1,24 @@
+package com.curisprofound.tddwebstack.db;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Invoice totals for one customer, built by a constructor expression in
+ * {@link CustomerRepository#findInvoiceSummaries}. {@code productCount} counts invoice lines,
+ * so a product bought on two invoices is counted twice.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerInvoiceSummary {
+    private long id;
+    private String name;
+    private long invoiceCount;
+    private long productCount;
+    private Date firstInvoice;
+    private Date lastInvoice;
+}
@@ -1,6 +1,55 @@
 package com.curisprofound.tddwebstack.db;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface CustomerRepository extends JpaRepository<Customer,Long> {
+
+    @Override
+    @EntityGraph(Customer.DETAIL_GRAPH)
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    List<Customer> findAll();
+
+    @EntityGraph(Customer.DETAIL_GRAPH)
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    List<Customer> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<CustomerSummary> findSummariesByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    @EntityGraph(Customer.DETAIL_GRAPH)
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    Stream<Customer> streamByIdGreaterThanOrderByIdAsc(long id);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<CustomerSummary> streamSummariesByIdGreaterThanOrderByIdAsc(long id);
+
+    @Query(value = "select new com.curisprofound.tddwebstack.db.CustomerInvoiceSummary(" +
+            "c.id, c.name, count(distinct i.id), count(p.id), min(i.date), max(i.date)) " +
+            "from Customer c left join c.invoices i left join i.products p " +
+            "group by c.id, c.name",
+            countQuery = "select count(c) from Customer c")
+    Page<CustomerInvoiceSummary> findInvoiceSummaries(Pageable pageable);
+
+    /**
+     * The revision of everything the customer representations are built from, see
+     * {@link CustomerRevisionListener}.
+     */
+    @Query(value = "select revision from customer_revision", nativeQuery = true)
+    long findRevision();
 }
@@ -0,0 +1,89 @@
+package com.curisprofound.tddwebstack.db;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps {@code customer_revision} moving with every write to what a customer representation is
+ * built from. A transaction that inserts, updates or deletes any of {@link #TRACKED} adds one to
+ * the revision on its own connection just before it commits, so the new revision becomes visible
+ * together with the changes and is rolled back with them. Collection changes count through the
+ * version of their owner. Bulk queries and plain JDBC bypass the events and must bump it themselves.
+ */
+@Component
+public class CustomerRevisionListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    static final Set<Class<?>> TRACKED = new HashSet<>(Arrays.asList(
+            Customer.class, ShippingContact.class, Invoice.class, Product.class, HighRiseAddressExtension.class));
+
+    private static final String BUMP = "update customer_revision set revision = revision + 1";
+
+    private final Set<SharedSessionContractImplementor> pending = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public CustomerRevisionListener(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(event.getPersister(), event.getSession());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        changed(event.getPersister(), event.getSession());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event.getPersister(), event.getSession());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Registers the increment once per transaction, however many rows it writes.
+     */
+    private void changed(EntityPersister persister, EventSource session) {
+        if (!TRACKED.contains(persister.getMappedClass()) || !pending.add(session))
+            return;
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) committing ->
+                committing.doWork(connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.executeUpdate(BUMP);
+                    }
+                }));
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) ->
+                pending.remove(completed));
+    }
+}
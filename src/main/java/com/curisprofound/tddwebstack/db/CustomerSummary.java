@@ -0,0 +1,6 @@
+package com.curisprofound.tddwebstack.db;
+
+public interface CustomerSummary {
+    long getId();
+    String getName();
+}
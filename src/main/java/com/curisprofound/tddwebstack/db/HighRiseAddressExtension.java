@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Version;
 
 @Entity
 @AllArgsConstructor
@@ -14,9 +15,12 @@ import javax.persistence.Id;
 @Data
 public class HighRiseAddressExtension {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
     private long id;
     private String suite;
     private String floor;
     private String buzzerCode;
+
+    @Version
+    private long version;
 }
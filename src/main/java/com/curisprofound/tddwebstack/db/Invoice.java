@@ -1,29 +1,43 @@
 package com.curisprofound.tddwebstack.db;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.sun.javafx.beans.IDProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import javax.persistence.*;
 import java.util.Date;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_invoice_customer_date", columnList = "customer_id, date"),
+        @Index(name = "idx_invoice_date", columnList = "date")
+})
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
 public class Invoice {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
     private long id;
 
     private Date date;
     private String place;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToOne
     private Customer customer;
 
     @ManyToMany
+    @JoinTable(indexes = @Index(name = "idx_invoice_products_invoice_product", columnList = "invoices_id, products_id"))
     private List<Product> products;
+
+    @Version
+    private long version;
 }
@@ -1,14 +1,18 @@
 package com.curisprofound.tddwebstack.db;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
+import javax.persistence.Version;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,14 +22,20 @@ import java.util.List;
 @Data
 public class Product {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
     private long id;
     private String name;
     private long number;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToMany(mappedBy = "products")
     private List<Invoice> invoices;
 
+    @Version
+    private long version;
+
     public List<Invoice> getInvoices(){
         if(invoices == null)
             invoices = new ArrayList<>();
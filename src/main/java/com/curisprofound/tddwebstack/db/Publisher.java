@@ -4,11 +4,14 @@ package com.curisprofound.tddwebstack.db;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.persistence.Id;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 @Document
@@ -22,8 +25,14 @@ public class Publisher {
     private String name;
     private String postalCode;
 
+    @Indexed(name = "books")
     private List<String> books;
 
+    @Version
+    private Long version;
+    @Indexed(name = "lastModified")
+    private Date lastModified;
+
     public List<String> getBooks(){
         if(books == null)
             books = new ArrayList<>();
@@ -1,26 +1,39 @@
 package com.curisprofound.tddwebstack.db;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.OneToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_shipping_contact_customer", columnNames = "customer_id"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
 public class ShippingContact {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
     private long id;
     private String name;
     private String phoneNumber;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToOne
     private Customer customer;
+
+    @Version
+    private long version;
 }
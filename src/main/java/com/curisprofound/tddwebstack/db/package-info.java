@@ -0,0 +1,4 @@
+@GenericGenerator(name = PooledSequenceGenerator.NAME, strategy = "com.curisprofound.tddwebstack.db.PooledSequenceGenerator")
+package com.curisprofound.tddwebstack.db;
+
+import org.hibernate.annotations.GenericGenerator;
@@ -0,0 +1,33 @@
+package com.curisprofound.tddwebstack.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Request meters shared by the MVC controllers and the functional routes, so both stacks report
+ * under {@code endpoint.requests} with the same tags: route template, HTTP method, status and outcome.
+ */
+@Component
+public class EndpointMetrics {
+
+    public static final String METRIC = "endpoint.requests";
+
+    static final Tags CANCELLED = Tags.of("status", "UNKNOWN", "outcome", "CANCELLED");
+
+    private final CallMeters meters;
+
+    @Autowired
+    public EndpointMetrics(MeterRegistry meterRegistry) {
+        this.meters = new CallMeters(meterRegistry, METRIC);
+    }
+
+    CallMeters.Call begin(String route, String method, long start) {
+        return meters.begin(Tags.of("route", route, "method", method), start);
+    }
+
+    static Tags status(int status) {
+        return Tags.of("status", String.valueOf(status), "outcome", CallMeters.outcome(status));
+    }
+}
@@ -0,0 +1,48 @@
+package com.curisprofound.tddwebstack.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Times controller requests from handler selection until the response is complete. Async handlers,
+ * such as the streaming customer export, are dispatched twice; the call started on the first
+ * dispatch is kept on the request and only finished after the async dispatch.
+ */
+@Component
+public class EndpointMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    static final String CALL_ATTRIBUTE = EndpointMetricsInterceptor.class.getName() + ".call";
+
+    private final EndpointMetrics endpointMetrics;
+
+    @Autowired
+    public EndpointMetricsInterceptor(EndpointMetrics endpointMetrics) {
+        this.endpointMetrics = endpointMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod && request.getAttribute(CALL_ATTRIBUTE) == null) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String route = pattern == null ? "UNKNOWN" : pattern.toString();
+            request.setAttribute(CALL_ATTRIBUTE, endpointMetrics.begin(route, request.getMethod(), System.nanoTime()));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        CallMeters.Call call = (CallMeters.Call) request.getAttribute(CALL_ATTRIBUTE);
+        if (call == null)
+            return;
+        request.removeAttribute(CALL_ATTRIBUTE);
+        int status = response.getStatus();
+        call.finish(EndpointMetrics.status(ex != null && status < 400 ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : status));
+    }
+}
@@ -0,0 +1,37 @@
+package com.curisprofound.tddwebstack.metrics;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Collection;
+
+/**
+ * Records how many rows a controller returned when its body is a collection.
+ */
+@ControllerAdvice
+public class EndpointRowsAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof Collection && request instanceof ServletServerHttpRequest) {
+            Object call = ((ServletServerHttpRequest) request).getServletRequest()
+                    .getAttribute(EndpointMetricsInterceptor.CALL_ATTRIBUTE);
+            if (call != null)
+                ((CallMeters.Call) call).rows(((Collection<?>) body).size());
+        }
+        return body;
+    }
+}
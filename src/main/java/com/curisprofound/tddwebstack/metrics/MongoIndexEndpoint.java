@@ -0,0 +1,70 @@
+package com.curisprofound.tddwebstack.metrics;
+
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.Publisher;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/mongoindexes}: every index of the book and publisher collections with its
+ * usage from {@code $indexStats}. The counters reset when mongod restarts; {@code since}
+ * is when counting began.
+ */
+@Component
+@Endpoint(id = "mongoindexes")
+public class MongoIndexEndpoint {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    public MongoIndexEndpoint(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @ReadOperation
+    public Map<String, List<Map<String, Object>>> indexes() {
+        return Flux.just(Book.class, Publisher.class)
+                .map(mongoTemplate::getCollectionName)
+                .concatMap(collection -> indexes(collection).map(indexes -> Collections.singletonMap(collection, indexes)))
+                .collect(LinkedHashMap<String, List<Map<String, Object>>>::new, Map::putAll)
+                .block(TIMEOUT);
+    }
+
+    private Mono<List<Map<String, Object>>> indexes(String collection) {
+        Mono<Map<String, Document>> usage = Flux.from(mongoTemplate.getCollection(collection)
+                .aggregate(Collections.singletonList(new Document("$indexStats", new Document()))))
+                .collectMap(stats -> stats.getString("name"), stats -> stats.get("accesses", Document.class));
+        return usage.flatMap(accesses -> Flux.from(mongoTemplate.getCollection(collection).listIndexes())
+                .map(index -> describe(index, accesses.get(index.getString("name"))))
+                .collectList());
+    }
+
+    private static Map<String, Object> describe(Document index, Document accesses) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("name", index.getString("name"));
+        description.put("key", index.get("key"));
+        description.put("unique", index.getBoolean("unique", false));
+        description.put("sparse", index.getBoolean("sparse", false));
+        if (index.containsKey("partialFilterExpression"))
+            description.put("partialFilter", index.get("partialFilterExpression"));
+        if (accesses != null) {
+            description.put("ops", ((Number) accesses.get("ops")).longValue());
+            description.put("since", accesses.getDate("since"));
+        }
+        return description;
+    }
+}
@@ -0,0 +1,142 @@
+package com.curisprofound.tddwebstack.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * Times every public method of every Spring Data repository, tagged by repository, method and outcome.
+ * Reactive results are timed from subscription to completion, once per subscription, and count the
+ * elements they emit. A returned {@link Stream} holds a cursor open and is timed and counted as
+ * active until it is closed, so repository streams must be closed by whoever takes them, in a
+ * try-with-resources as {@code CustomerService} does; one left open shows up in the active gauge.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    public static final String METRIC = "repository.calls";
+
+    private static final Tags SUCCESS = Tags.of("outcome", "SUCCESS");
+    private static final Tags ERROR = Tags.of("outcome", "ERROR");
+    private static final Tags CANCELLED = Tags.of("outcome", "CANCELLED");
+
+    private final CallMeters meters;
+    private final ConcurrentMap<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RepositoryMetricsAspect(MeterRegistry meterRegistry) {
+        this.meters = new CallMeters(meterRegistry, METRIC);
+    }
+
+    @Around("this(org.springframework.data.repository.Repository) " +
+            "&& execution(public * *(..)) && !execution(* java.lang.Object.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Tags identity = Tags.of(
+                "repository", repositoryName(joinPoint.getThis().getClass()),
+                "method", joinPoint.getSignature().getName());
+        Class<?> returnType = ((MethodSignature) joinPoint.getSignature()).getReturnType();
+        if (Flux.class.isAssignableFrom(returnType)) {
+            Flux<?> flux = (Flux<?>) joinPoint.proceed();
+            return Flux.defer(() -> timed(flux, identity));
+        }
+        if (Mono.class.isAssignableFrom(returnType)) {
+            Mono<?> mono = (Mono<?>) joinPoint.proceed();
+            return Mono.defer(() -> timed(mono, identity));
+        }
+
+        CallMeters.Call call = meters.begin(identity, System.nanoTime());
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            call.finish(ERROR);
+            throw e;
+        }
+        if (result instanceof Stream) {
+            call.countRows();
+            return ((Stream<?>) result)
+                    .peek(row -> call.addRow())
+                    .onClose(() -> call.finish(SUCCESS));
+        }
+        if (returnType != void.class && counted(result))
+            call.rows(rows(result));
+        call.finish(SUCCESS);
+        return result;
+    }
+
+    private Flux<?> timed(Flux<?> flux, Tags identity) {
+        CallMeters.Call call = meters.begin(identity, System.nanoTime());
+        call.countRows();
+        return flux.doOnNext(row -> call.addRow())
+                .doFinally(signal -> call.finish(outcome(signal)));
+    }
+
+    private Mono<?> timed(Mono<?> mono, Tags identity) {
+        CallMeters.Call call = meters.begin(identity, System.nanoTime());
+        call.countRows();
+        return mono.doOnNext(row -> call.addRow())
+                .doFinally(signal -> call.finish(outcome(signal)));
+    }
+
+    private String repositoryName(Class<?> proxyClass) {
+        return repositoryNames.computeIfAbsent(proxyClass, type -> {
+            for (Class<?> candidate : type.getInterfaces())
+                if (Repository.class.isAssignableFrom(candidate) && !candidate.getName().startsWith("org.springframework."))
+                    return candidate.getSimpleName();
+            return type.getSimpleName();
+        });
+    }
+
+    private static Tags outcome(SignalType signal) {
+        switch (signal) {
+            case ON_COMPLETE:
+                return SUCCESS;
+            case ON_ERROR:
+                return ERROR;
+            default:
+                return CANCELLED;
+        }
+    }
+
+    /**
+     * Counts and booleans are not rows and leave the summary alone.
+     */
+    private static boolean counted(Object result) {
+        return !(result instanceof Number || result instanceof Boolean);
+    }
+
+    private static long rows(Object result) {
+        if (result == null)
+            return 0;
+        if (result instanceof Collection)
+            return ((Collection<?>) result).size();
+        if (result instanceof Slice)
+            return ((Slice<?>) result).getNumberOfElements();
+        if (result instanceof Optional)
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        if (result instanceof Iterable) {
+            long count = 0;
+            for (Object ignored : (Iterable<?>) result)
+                count++;
+            return count;
+        }
+        return 1;
+    }
+}
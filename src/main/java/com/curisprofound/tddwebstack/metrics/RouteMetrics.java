@@ -0,0 +1,85 @@
+package com.curisprofound.tddwebstack.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Request meters for the functional routes. Spring 5.0 does not expose which route matched, so each
+ * route names itself with {@link #route(String)}; the filter starts the call there and this
+ * {@link WebFilter} finishes it once the response body has been written, which is when a streamed
+ * listing is actually done.
+ */
+@Component
+public class RouteMetrics implements WebFilter {
+
+    private static final String START_ATTRIBUTE = RouteMetrics.class.getName() + ".start";
+    private static final String CALL_ATTRIBUTE = RouteMetrics.class.getName() + ".call";
+
+    private final EndpointMetrics endpointMetrics;
+
+    @Autowired
+    public RouteMetrics(EndpointMetrics endpointMetrics) {
+        this.endpointMetrics = endpointMetrics;
+    }
+
+    public HandlerFilterFunction<ServerResponse, ServerResponse> route(String route) {
+        return (request, next) -> {
+            Object start = request.attributes().get(START_ATTRIBUTE);
+            if (start != null)
+                request.attributes().put(CALL_ATTRIBUTE,
+                        endpointMetrics.begin(route, request.methodName(), (Long) start));
+            return next.handle(request);
+        };
+    }
+
+    /**
+     * Counts the rows a listing emits into the request's call, if the route is timed.
+     */
+    public static <T> Flux<T> countRows(ServerRequest request, Flux<T> rows) {
+        Object call = request.attributes().get(CALL_ATTRIBUTE);
+        if (call == null)
+            return rows;
+        CallMeters.Call timed = (CallMeters.Call) call;
+        timed.countRows();
+        return rows.doOnNext(row -> timed.addRow());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        exchange.getAttributes().put(START_ATTRIBUTE, System.nanoTime());
+        return chain.filter(exchange)
+                .doOnSuccessOrError((done, error) -> {
+                    CallMeters.Call call = exchange.getAttribute(CALL_ATTRIBUTE);
+                    if (call != null)
+                        call.finish(EndpointMetrics.status(status(exchange, error)));
+                })
+                .doOnCancel(() -> {
+                    CallMeters.Call call = exchange.getAttribute(CALL_ATTRIBUTE);
+                    if (call != null)
+                        call.finish(EndpointMetrics.CANCELLED);
+                });
+    }
+
+    /**
+     * Errors are turned into responses by the exception handlers outside the filter chain,
+     * so their status is worked out the same way here.
+     */
+    private static int status(ServerWebExchange exchange, Throwable error) {
+        if (error instanceof ResponseStatusException)
+            return ((ResponseStatusException) error).getStatus().value();
+        if (error != null)
+            return HttpStatus.INTERNAL_SERVER_ERROR.value();
+        HttpStatus status = exchange.getResponse().getStatusCode();
+        return status == null ? HttpStatus.OK.value() : status.value();
+    }
+}
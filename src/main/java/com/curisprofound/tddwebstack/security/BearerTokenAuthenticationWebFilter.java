@@ -0,0 +1,37 @@
+package com.curisprofound.tddwebstack.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * The reactive counterpart of {@link BearerTokenAuthenticationFilter}: verifies
+ * {@code Authorization: Bearer <token>} in line, answers a token that does not verify with 401,
+ * and lets requests without one pass through untouched.
+ */
+public class BearerTokenAuthenticationWebFilter extends AuthenticationWebFilter {
+
+    private static final String PREFIX = BearerTokens.TYPE + " ";
+
+    public BearerTokenAuthenticationWebFilter(BearerTokens bearerTokens) {
+        super(authentication -> Mono.fromCallable(() -> bearerTokens.verify((String) authentication.getCredentials()))
+                .onErrorMap(IllegalArgumentException.class, e -> new BadCredentialsException(e.getMessage(), e)));
+        setAuthenticationConverter(exchange -> {
+            String header = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (header == null || !header.regionMatches(true, 0, PREFIX, 0, PREFIX.length()))
+                return Mono.empty();
+            return Mono.just(new PreAuthenticatedAuthenticationToken(null, header.substring(PREFIX.length()).trim()));
+        });
+        setAuthenticationFailureHandler((webFilterExchange, e) -> Mono.fromRunnable(() -> {
+            ServerHttpResponse response = webFilterExchange.getExchange().getResponse();
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            response.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+        }));
+        setSecurityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+    }
+}
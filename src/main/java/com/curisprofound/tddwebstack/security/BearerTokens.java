@@ -0,0 +1,85 @@
+package com.curisprofound.tddwebstack.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.stream.Collectors;
+
+/**
+ * Stateless bearer tokens: user name, expiry and authorities, signed with HMAC-SHA256. Verifying
+ * one is a signature check, with no password hash and no store lookup. The key comes from
+ * {@code auth.tokens.secret} so every instance accepts the tokens of the others; without one a
+ * random key is used and tokens do not survive a restart.
+ */
+@Component
+public class BearerTokens {
+
+    public static final String TYPE = "Bearer";
+
+    private static final Logger log = LoggerFactory.getLogger(BearerTokens.class);
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Hmac signer;
+    private final long ttlSeconds;
+
+    @Autowired
+    public BearerTokens(@Value("${auth.tokens.secret:}") String secret,
+                        @Value("${auth.tokens.ttl-seconds:3600}") long ttlSeconds) {
+        if (secret.isEmpty())
+            log.warn("No auth.tokens.secret configured; bearer tokens are signed with a random key");
+        this.signer = secret.isEmpty() ? Hmac.withRandomKey() : new Hmac(Base64.getDecoder().decode(secret));
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public IssuedToken issue(Authentication authentication) {
+        long expires = Instant.now().getEpochSecond() + ttlSeconds;
+        String authorities = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(","));
+        String payload = encode(authentication.getName()) + '.' + expires + '.' + encode(authorities);
+        return new IssuedToken(payload + '.' + signer.sign(payload), TYPE, ttlSeconds);
+    }
+
+    /**
+     * The authentication a token stands for, as a {@link PreAuthenticatedAuthenticationToken}.
+     */
+    public Authentication verify(String token) {
+        int signatureStart = token.lastIndexOf('.');
+        String payload = signatureStart < 0 ? "" : token.substring(0, signatureStart);
+        String signature = token.substring(signatureStart + 1);
+        if (!MessageDigest.isEqual(
+                signer.sign(payload).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII)))
+            throw new BadCredentialsException("Invalid bearer token signature");
+        String[] fields = payload.split("\\.", -1);
+        if (fields.length != 3)
+            throw new BadCredentialsException("Malformed bearer token");
+        if (Long.parseLong(fields[1]) <= Instant.now().getEpochSecond())
+            throw new BadCredentialsException("Expired bearer token");
+        return new PreAuthenticatedAuthenticationToken(
+                decode(fields[0]),
+                null,
+                AuthorityUtils.commaSeparatedStringToAuthorityList(decode(fields[2])));
+    }
+
+    private static String encode(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+package com.curisprofound.tddwebstack.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Asks its delegate only for credentials that are not among the {@link VerifiedCredentials}, so a
+ * client sending the same Basic credentials on every call pays for the password hash once per time
+ * to live instead of once per request.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final VerifiedCredentials verifiedCredentials;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, VerifiedCredentials verifiedCredentials) {
+        this.delegate = delegate;
+        this.verifiedCredentials = verifiedCredentials;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        Authentication cached = verifiedCredentials.lookup(authentication);
+        if (cached != null)
+            return cached;
+        return verifiedCredentials.remember(authentication, delegate.authenticate(authentication));
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
@@ -0,0 +1,31 @@
+package com.curisprofound.tddwebstack.security;
+
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+/**
+ * The reactive counterpart of {@link CachingAuthenticationProvider}. Cached credentials are
+ * answered on the calling thread; only a miss goes to the delegate, whose password check moves
+ * off the event loop.
+ */
+public class CachingReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final ReactiveAuthenticationManager delegate;
+    private final VerifiedCredentials verifiedCredentials;
+
+    public CachingReactiveAuthenticationManager(ReactiveAuthenticationManager delegate,
+                                                VerifiedCredentials verifiedCredentials) {
+        this.delegate = delegate;
+        this.verifiedCredentials = verifiedCredentials;
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        Authentication cached = verifiedCredentials.lookup(authentication);
+        if (cached != null)
+            return Mono.just(cached);
+        return delegate.authenticate(authentication)
+                .map(result -> verifiedCredentials.remember(authentication, result));
+    }
+}
@@ -0,0 +1,14 @@
+package com.curisprofound.tddwebstack.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IssuedToken {
+    private String accessToken;
+    private String tokenType;
+    private long expiresIn;
+}
@@ -0,0 +1,72 @@
+package com.curisprofound.tddwebstack.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Credentials that passed a password check lately, shared by the servlet and the reactive security
+ * chains so a client pays for the hash once per time to live whichever stack it calls. Entries are
+ * keyed by an HMAC of user name and password under a key made at startup; the password itself is
+ * not kept. A disabled user or changed password applies to cached credentials once their entry expires.
+ */
+@Component
+public class VerifiedCredentials {
+
+    public static final String CACHE_NAME = "authentications";
+
+    private final Cache<String, Authentication> verified;
+    private final Hmac digest = Hmac.withRandomKey();
+
+    @Autowired
+    public VerifiedCredentials(MeterRegistry meterRegistry,
+                               @Value("${auth.cache.ttl-seconds:300}") long ttlSeconds,
+                               @Value("${auth.cache.maximum-size:10000}") long maximumSize) {
+        this.verified = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, CACHE_NAME);
+    }
+
+    /**
+     * The authentication the credentials of {@code request} stand for, or null if they have not
+     * been verified within the time to live.
+     */
+    Authentication lookup(Authentication request) {
+        if (request.getCredentials() == null)
+            return null;
+        Authentication cached = verified.getIfPresent(key(request));
+        return cached == null ? null : copy(cached, request);
+    }
+
+    /**
+     * Remembers a successful check and returns the result without its credentials.
+     */
+    Authentication remember(Authentication request, Authentication result) {
+        if (request.getCredentials() == null || result == null || !result.isAuthenticated())
+            return result;
+        verified.put(key(request), result);
+        return copy(result, request);
+    }
+
+    private String key(Authentication request) {
+        return digest.sign(request.getName() + '\0' + request.getCredentials());
+    }
+
+    private static Authentication copy(Authentication verified, Authentication request) {
+        UsernamePasswordAuthenticationToken result =
+                new UsernamePasswordAuthenticationToken(verified.getPrincipal(), null, verified.getAuthorities());
+        result.setDetails(request.getDetails());
+        return result;
+    }
+}
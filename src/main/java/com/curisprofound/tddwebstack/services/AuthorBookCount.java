@@ -0,0 +1,13 @@
+package com.curisprofound.tddwebstack.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuthorBookCount {
+    private String author;
+    private long books;
+}
@@ -0,0 +1,158 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.BookChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Catalog writes as a hot stream. The driver and the embedded Mongo predate change streams, so
+ * writes are recorded in the capped {@link BookChange#COLLECTION} and read back through one
+ * tailable cursor, shared by every subscriber and closed when the last one leaves. A cursor that
+ * dies is reopened after the last change it delivered, in insertion order. Each subscriber drains its own bounded
+ * buffer, so a slow one loses changes to its {@link Overflow} strategy instead of holding back
+ * the others.
+ */
+@Service
+public class BookChangeFeed {
+
+    public static final String DROPPED_METRIC = "books.changes.dropped";
+
+    private static final Logger log = LoggerFactory.getLogger(BookChangeFeed.class);
+
+    private static final String NATURAL = "$natural";
+
+    public enum Overflow {
+        /**
+         * Keeps the buffered changes and drops the ones arriving while it is full.
+         */
+        DROP(BufferOverflowStrategy.DROP_LATEST),
+        /**
+         * Makes room for the newest change by dropping the oldest buffered one.
+         */
+        LATEST(BufferOverflowStrategy.DROP_OLDEST);
+
+        private final BufferOverflowStrategy strategy;
+
+        Overflow(BufferOverflowStrategy strategy) {
+            this.strategy = strategy;
+        }
+    }
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CollectionOptions collectionOptions;
+    private final int bufferSize;
+    private final Duration reopenDelay;
+    private final Map<Overflow, Counter> dropped = new EnumMap<>(Overflow.class);
+    private final Flux<BookChange> changes;
+    private volatile boolean created;
+
+    @Autowired
+    public BookChangeFeed(ReactiveMongoTemplate mongoTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${books.changes.capped-size-bytes:4194304}") long cappedSize,
+                          @Value("${books.changes.capped-max-documents:10000}") long cappedDocuments,
+                          @Value("${books.changes.buffer-size:256}") int bufferSize,
+                          @Value("${books.changes.reopen-millis:1000}") long reopenMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.collectionOptions = CollectionOptions.empty().capped().size(cappedSize).maxDocuments(cappedDocuments);
+        this.bufferSize = Math.max(1, bufferSize);
+        this.reopenDelay = Duration.ofMillis(reopenMillis);
+        for (Overflow overflow : Overflow.values())
+            dropped.put(overflow, meterRegistry.counter(DROPPED_METRIC, "overflow", overflow.name().toLowerCase()));
+        this.changes = tail().publish().refCount();
+    }
+
+    /**
+     * The changes recorded from now on, for as long as the subscription lasts.
+     */
+    public Flux<BookChange> changes(Overflow overflow) {
+        Counter counter = dropped.get(overflow);
+        return changes.onBackpressureBuffer(bufferSize, change -> counter.increment(), overflow.strategy);
+    }
+
+    public Mono<Void> record(BookChange change) {
+        return created().then(mongoTemplate.insert(change)).then();
+    }
+
+    public Mono<Void> record(Collection<BookChange> changes) {
+        if (changes.isEmpty())
+            return Mono.empty();
+        return created().then(mongoTemplate.insertAll(Mono.just(changes), BookChange.class).then());
+    }
+
+    /**
+     * Starts after the newest change recorded so far; on an empty collection a tailable cursor
+     * is dead from the start, which the reopening covers until the first change arrives.
+     */
+    private Flux<BookChange> tail() {
+        AtomicReference<String> last = new AtomicReference<>();
+        return created()
+                .then(newest())
+                .doOnNext(last::set)
+                .thenMany(Flux.defer(() -> after(last.get()))
+                        .doOnNext(change -> last.set(change.getId()))
+                        .repeatWhen(closed -> closed.delayElements(reopenDelay))
+                        .retryWhen(errors -> errors
+                                .doOnNext(e -> log.warn("Book change cursor failed, reopening", e))
+                                .delayElements(reopenDelay)));
+    }
+
+    private Mono<String> newest() {
+        Query newest = new Query().with(Sort.by(Sort.Direction.DESC, NATURAL)).limit(1);
+        newest.fields().include("_id");
+        return mongoTemplate.findOne(newest, BookChange.class).map(BookChange::getId);
+    }
+
+    /**
+     * Tails the collection from its oldest change and skips up to and including {@code id}. The
+     * ids of different writers are not ordered by the time they inserted, so only the insertion
+     * order of the capped collection says what came after. When {@code id} has already been
+     * rolled out of the collection, every change left in it is newer.
+     */
+    private Flux<BookChange> after(String id) {
+        Flux<BookChange> all = mongoTemplate.tail(new Query(), BookChange.class);
+        if (id == null)
+            return all;
+        return mongoTemplate.exists(query(where("_id").is(id)), BookChange.class)
+                .flatMapMany(kept -> kept ?
+                        all.skipUntil(change -> id.equals(change.getId())).skip(1) :
+                        all);
+    }
+
+    /**
+     * Capped collections have to be created as such; a plain insert would create an ordinary one.
+     */
+    private Mono<Void> created() {
+        return Mono.defer(() -> created ?
+                Mono.<Void>empty() :
+                mongoTemplate.collectionExists(BookChange.class)
+                        .flatMap(exists -> exists ?
+                                Mono.<Void>empty() :
+                                mongoTemplate.createCollection(BookChange.class, collectionOptions)
+                                        .then()
+                                        .onErrorResume(e -> mongoTemplate.collectionExists(BookChange.class)
+                                                .flatMap(raced -> raced ? Mono.<Void>empty() : Mono.error(e))))
+                        .doOnSuccess(done -> created = true));
+    }
+}
@@ -0,0 +1,55 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.BookChange;
+import com.curisprofound.tddwebstack.db.Publisher;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the books and publishers written through the template or a repository in the
+ * {@link BookChangeFeed}. The bulk import bypasses the mapping events and records its own.
+ */
+@Component
+public class BookChangeRecorder extends AbstractMongoEventListener<Object> {
+
+    private static final Logger log = LoggerFactory.getLogger(BookChangeRecorder.class);
+
+    private final BookChangeFeed bookChangeFeed;
+
+    @Autowired
+    public BookChangeRecorder(BookChangeFeed bookChangeFeed) {
+        this.bookChangeFeed = bookChangeFeed;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Object source = event.getSource();
+        if (source instanceof Book)
+            record(BookChange.of(event.getCollectionName(), ((Book) source).getId(), BookChange.Operation.SAVED));
+        else if (source instanceof Publisher)
+            record(BookChange.of(event.getCollectionName(), ((Publisher) source).getId(), BookChange.Operation.SAVED));
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        Class<?> type = event.getType();
+        if (type != Book.class && type != Publisher.class)
+            return;
+        Document query = event.getSource();
+        Object id = query == null ? null : query.get("_id");
+        record(BookChange.of(event.getCollectionName(), id instanceof String ? (String) id : null, BookChange.Operation.DELETED));
+    }
+
+    private void record(BookChange change) {
+        bookChangeFeed.record(change).subscribe(
+                null,
+                e -> log.warn("Could not record {} of {} {}", change.getOperation(), change.getType(), change.getDocumentId(), e));
+    }
+}
@@ -0,0 +1,36 @@
+package com.curisprofound.tddwebstack.services;
+
+import lombok.Getter;
+
+/**
+ * Totals of a bulk book import. Books whose id already exists are counted as duplicates
+ * and left untouched; publishers are upserted, so they are counted once per batch they appear in.
+ */
+@Getter
+public class BookImportReport {
+
+    private int batches;
+    private long books;
+    private long inserted;
+    private long duplicates;
+    private long publishers;
+    private long millis;
+
+    BookImportReport add(int books, int inserted, int publishers) {
+        this.batches++;
+        this.books += books;
+        this.inserted += inserted;
+        this.duplicates += books - inserted;
+        this.publishers += publishers;
+        return this;
+    }
+
+    BookImportReport finish(long millis) {
+        this.millis = millis;
+        return this;
+    }
+
+    public double getBooksPerSecond() {
+        return millis == 0 ? books * 1000.0 : books * 1000.0 / millis;
+    }
+}
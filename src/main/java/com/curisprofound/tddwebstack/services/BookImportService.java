@@ -0,0 +1,208 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.BookChange;
+import com.curisprofound.tddwebstack.db.Publisher;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Loads books in batches straight through the collections of {@link ReactiveMongoTemplate}:
+ * one unordered {@code insertMany} for the books of a batch, and one unordered {@code bulkWrite}
+ * upserting each distinct publisher of the batch once. At most {@code books.import.concurrency}
+ * batches are in flight, and the incoming stream is only requested as batches complete.
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookImportService.class);
+
+    private static final String ID = "_id";
+    private static final String VERSION = "version";
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final PublisherCache publisherCache;
+    private final BookChangeFeed bookChangeFeed;
+    private final int batchSize;
+    private final int concurrency;
+
+    @Autowired
+    public BookImportService(ReactiveMongoTemplate mongoTemplate,
+                             PublisherCache publisherCache,
+                             BookChangeFeed bookChangeFeed,
+                             @Value("${books.import.batch-size:1000}") int batchSize,
+                             @Value("${books.import.concurrency:4}") int concurrency) {
+        this.mongoTemplate = mongoTemplate;
+        this.publisherCache = publisherCache;
+        this.bookChangeFeed = bookChangeFeed;
+        this.batchSize = Math.max(1, batchSize);
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    public Mono<BookImportReport> importBooks(Flux<Book> books) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return books
+                    .buffer(batchSize)
+                    .flatMap(this::writeBatch, concurrency)
+                    .reduce(new BookImportReport(), (report, batch) -> batch.apply(report))
+                    .map(report -> report.finish(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        });
+    }
+
+    private Mono<BatchResult> writeBatch(List<Book> batch) {
+        Map<String, Publisher> publishers = distinctPublishers(batch);
+        return Mono.zip(insertBooks(batch), upsertPublishers(publishers))
+                .flatMap(written -> recordChanges(written.getT1(), publishers.keySet())
+                        .thenReturn(new BatchResult(batch.size(), written.getT1().size(), publishers.size())));
+    }
+
+    /**
+     * Completes with the documents actually inserted, leaving out the duplicates.
+     */
+    private Mono<List<Document>> insertBooks(List<Book> batch) {
+        List<Document> documents = batch.stream().map(this::toDocument).collect(toList());
+        return Mono.from(mongoTemplate.getCollection(mongoTemplate.getCollectionName(Book.class))
+                .insertMany(documents, new InsertManyOptions().ordered(false)))
+                .map(success -> documents)
+                .onErrorResume(MongoBulkWriteException.class, e -> onlyDuplicates(e) ?
+                        Mono.just(inserted(documents, e)) :
+                        Mono.error(e));
+    }
+
+    /**
+     * The upserts bypass the mapping events, so the cached publishers are dropped, and their
+     * versions and stamps advanced, here.
+     */
+    private Mono<Integer> upsertPublishers(Map<String, Publisher> publishers) {
+        Set<String> ids = publishers.keySet();
+        List<WriteModel<Document>> upserts = publishers.values().stream().map(this::toUpsert).collect(toList());
+        if (upserts.isEmpty())
+            return Mono.just(0);
+        return Mono.from(mongoTemplate.getCollection(mongoTemplate.getCollectionName(Publisher.class))
+                .bulkWrite(upserts, new BulkWriteOptions().ordered(false)))
+                .doFinally(signal -> publisherCache.invalidateAll(ids))
+                .map(result -> upserts.size());
+    }
+
+    /**
+     * The batch is written by then, so a change that cannot be recorded is logged rather than
+     * failing the import.
+     */
+    private Mono<Void> recordChanges(List<Document> books, Set<String> publisherIds) {
+        String bookType = mongoTemplate.getCollectionName(Book.class);
+        String publisherType = mongoTemplate.getCollectionName(Publisher.class);
+        List<BookChange> changes = new ArrayList<>(books.size() + publisherIds.size());
+        books.forEach(book -> changes.add(BookChange.of(bookType, String.valueOf(book.get(ID)), BookChange.Operation.SAVED)));
+        publisherIds.forEach(id -> changes.add(BookChange.of(publisherType, id, BookChange.Operation.SAVED)));
+        return bookChangeFeed.record(changes)
+                .onErrorResume(e -> {
+                    log.warn("Could not record {} imported changes", changes.size(), e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * One publisher per id, carrying the ids of every book of the batch that references it.
+     */
+    private static Map<String, Publisher> distinctPublishers(List<Book> batch) {
+        Map<String, Set<String>> bookIds = new LinkedHashMap<>();
+        Map<String, Publisher> publishers = new LinkedHashMap<>();
+        for (Book book : batch) {
+            Publisher publisher = book.getPublisher();
+            if (publisher == null || publisher.getId() == null)
+                continue;
+            publishers.putIfAbsent(publisher.getId(), publisher);
+            Set<String> ids = bookIds.computeIfAbsent(publisher.getId(), id -> new LinkedHashSet<>());
+            ids.addAll(publisher.getBooks());
+            if (book.getId() != null)
+                ids.add(book.getId());
+        }
+        publishers.replaceAll((id, publisher) ->
+                new Publisher(id, publisher.getName(), publisher.getPostalCode(), new ArrayList<>(bookIds.get(id)), null, null));
+        return publishers;
+    }
+
+    private UpdateOneModel<Document> toUpsert(Publisher publisher) {
+        Document fields = new Document();
+        mongoTemplate.getConverter().write(publisher, fields);
+        fields.remove(ID);
+        fields.remove(VERSION);
+        fields.put(LAST_MODIFIED, new Date());
+        Object books = fields.remove("books");
+        Document update = new Document("$set", fields)
+                .append("$inc", new Document(VERSION, 1L));
+        if (books != null)
+            update.append("$addToSet", new Document("books", new Document("$each", books)));
+        return new UpdateOneModel<>(
+                new Document(ID, publisher.getId()),
+                update,
+                new UpdateOptions().upsert(true));
+    }
+
+    private Document toDocument(Book book) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(book, document);
+        document.put(VERSION, 0L);
+        document.put(LAST_MODIFIED, new Date());
+        return document;
+    }
+
+    private static List<Document> inserted(List<Document> documents, MongoBulkWriteException e) {
+        Set<Integer> failed = e.getWriteErrors().stream().map(BulkWriteError::getIndex).collect(toSet());
+        return IntStream.range(0, documents.size())
+                .filter(index -> !failed.contains(index))
+                .mapToObj(documents::get)
+                .collect(toList());
+    }
+
+    private static boolean onlyDuplicates(MongoBulkWriteException e) {
+        return e.getWriteConcernError() == null && e.getWriteErrors().stream()
+                .allMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY);
+    }
+
+    private static class BatchResult {
+        private final int books;
+        private final int inserted;
+        private final int publishers;
+
+        BatchResult(int books, int inserted, int publishers) {
+            this.books = books;
+            this.inserted = inserted;
+            this.publishers = publishers;
+        }
+
+        BookImportReport apply(BookImportReport report) {
+            return report.add(books, inserted, publishers);
+        }
+    }
+}
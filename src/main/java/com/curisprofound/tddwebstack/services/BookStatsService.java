@@ -0,0 +1,77 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.Collections;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+
+/**
+ * Catalog statistics computed by aggregation pipelines in Mongo and streamed off the cursor.
+ * Counts per publisher come from the denormalized {@link Publisher#getBooks()} ids, so they
+ * never touch the book collection or follow a {@code DBRef}; {@link PublisherBooks} and the bulk
+ * import keep those ids in step with the books written.
+ */
+@Service
+public class BookStatsService {
+
+    private static final AggregationOptions OPTIONS = Aggregation.newAggregationOptions()
+            .allowDiskUse(true)
+            .build();
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    public BookStatsService(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public Flux<AuthorBookCount> booksPerAuthor() {
+        TypedAggregation<Book> aggregation = newAggregation(Book.class,
+                group("author.name").count().as("books"),
+                project("books").and("author").previousOperation(),
+                sort(Sort.Direction.DESC, "books").and(Sort.Direction.ASC, "author"))
+                .withOptions(OPTIONS);
+        return mongoTemplate.aggregate(aggregation, AuthorBookCount.class);
+    }
+
+    public Flux<PublisherBookCount> booksPerPublisher() {
+        TypedAggregation<Publisher> aggregation = newAggregation(Publisher.class,
+                project("name", "postalCode")
+                        .and("id").as("publisherId")
+                        .and(bookCount()).as("books"),
+                sort(Sort.Direction.DESC, "books").and(Sort.Direction.ASC, "publisherId"))
+                .withOptions(OPTIONS);
+        return mongoTemplate.aggregate(aggregation, PublisherBookCount.class);
+    }
+
+    public Flux<PostalCodePublisherCount> publishersPerPostalCode() {
+        TypedAggregation<Publisher> aggregation = newAggregation(Publisher.class,
+                project("postalCode").and(bookCount()).as("books"),
+                group("postalCode").count().as("publishers").sum("books").as("books"),
+                project("publishers", "books").and("postalCode").previousOperation(),
+                sort(Sort.Direction.DESC, "publishers").and(Sort.Direction.ASC, "postalCode"))
+                .withOptions(OPTIONS);
+        return mongoTemplate.aggregate(aggregation, PostalCodePublisherCount.class);
+    }
+
+    private static AggregationExpression bookCount() {
+        return ArrayOperators.Size.lengthOfArray(
+                ConditionalOperators.ifNull("books").then(Collections.emptyList()));
+    }
+}
@@ -0,0 +1,15 @@
+package com.curisprofound.tddwebstack.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogVersion {
+    private String etag;
+    private Instant lastModified;
+}
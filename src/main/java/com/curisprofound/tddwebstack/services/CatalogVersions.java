@@ -0,0 +1,95 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.Publisher;
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Date;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Validators of the book catalog read from the {@code version} and {@code lastModified} fields
+ * with projected queries, the latest stamps off the {@code lastModified} indexes, so a conditional
+ * read is decided without fetching the books.
+ * The listing changes with the count or the latest stamp of either collection; a single book with
+ * its own version and the version of its publisher.
+ */
+@Service
+public class CatalogVersions {
+
+    private static final String VERSION = "version";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final long NO_VERSION = -1;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    public CatalogVersions(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public Mono<CatalogVersion> listing() {
+        return Mono.zip(
+                mongoTemplate.count(new Query(), Book.class),
+                lastModified(Book.class),
+                mongoTemplate.count(new Query(), Publisher.class),
+                lastModified(Publisher.class))
+                .map(state -> new CatalogVersion(
+                        new VersionTag("books")
+                                .add(state.getT1())
+                                .add(state.getT2().toEpochMilli())
+                                .add(state.getT3())
+                                .add(state.getT4().toEpochMilli())
+                                .toETag(),
+                        state.getT2().isAfter(state.getT4()) ? state.getT2() : state.getT4()));
+    }
+
+    public Mono<String> bookTag(String id) {
+        Query book = query(where("_id").is(id));
+        book.fields().include(VERSION).include("publisher");
+        return mongoTemplate.findOne(book, Document.class, mongoTemplate.getCollectionName(Book.class))
+                .flatMap(found -> publisherVersion(found.get("publisher"))
+                        .map(publisherVersion -> new VersionTag("book")
+                                .add(id)
+                                .add(version(found))
+                                .add(publisherVersion)
+                                .toETag()));
+    }
+
+    private Mono<Long> publisherVersion(Object reference) {
+        if (!(reference instanceof DBRef))
+            return Mono.just(NO_VERSION);
+        Query publisher = query(where("_id").is(((DBRef) reference).getId()));
+        publisher.fields().include(VERSION);
+        return mongoTemplate.findOne(publisher, Document.class, mongoTemplate.getCollectionName(Publisher.class))
+                .map(CatalogVersions::version)
+                .defaultIfEmpty(NO_VERSION);
+    }
+
+    /**
+     * Documents written before the stamp existed sort last and count as the epoch.
+     */
+    private Mono<Instant> lastModified(Class<?> type) {
+        Query latest = new Query().with(Sort.by(Sort.Direction.DESC, LAST_MODIFIED)).limit(1);
+        latest.fields().include(LAST_MODIFIED).exclude("_id");
+        return mongoTemplate.findOne(latest, Document.class, mongoTemplate.getCollectionName(type))
+                .flatMap(document -> Mono.justOrEmpty(document.getDate(LAST_MODIFIED)))
+                .map(Date::toInstant)
+                .defaultIfEmpty(Instant.EPOCH);
+    }
+
+    private static long version(Document document) {
+        Object version = document.get(VERSION);
+        return version instanceof Number ? ((Number) version).longValue() : NO_VERSION;
+    }
+}
@@ -0,0 +1,60 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Customer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Server side ids for bulk loaded customers that come without one (id 0); customers carrying an
+ * id keep it.
+ * Server ids start at {@link #FIRST_SERVER_ID}, above any id a caller may create a customer with,
+ * so the two never meet: the ids below belong to the callers, the ones from there on to the server.
+ * Ids are taken from {@code customer_seq} a block at a time, the same pooled-lo scheme the entity
+ * ids use, so there is one round trip per block rather than per customer. The block size must not
+ * be larger than the increment of the sequence.
+ */
+@Component
+public class CustomerIdAllocator {
+
+    /**
+     * The first id of the server range; {@code customer_seq} is restarted here by {@code V5__customer_server_id_range.sql}.
+     */
+    public static final long FIRST_SERVER_ID = 1L << 40;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int allocationSize;
+
+    private long next;
+    private long limit;
+
+    @Autowired
+    public CustomerIdAllocator(JdbcTemplate jdbcTemplate,
+                               @Value("${customers.ids.allocation-size:50}") int allocationSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.allocationSize = Math.max(1, allocationSize);
+    }
+
+    public Customer assign(Customer customer) {
+        if (customer.getId() == 0)
+            customer.setId(next());
+        return customer;
+    }
+
+    /**
+     * Whether the id is in the range the server hands out, where callers may update customers but
+     * not create them.
+     */
+    public static boolean isServerId(long id) {
+        return id >= FIRST_SERVER_ID;
+    }
+
+    public synchronized long next() {
+        if (next == limit) {
+            next = jdbcTemplate.queryForObject("select next value for customer_seq", Long.class);
+            limit = next + allocationSize;
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,123 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Customer;
+import com.curisprofound.tddwebstack.db.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Writes customers in chunks, one transaction per chunk, so Hibernate can group the
+ * customer and element collection inserts into JDBC batches
+ * ({@code hibernate.jdbc.batch_size}, {@code order_inserts}, {@code order_updates}).
+ * A failing chunk rolls back on its own; the chunks before it stay committed. Customers
+ * without an id get one from {@link CustomerIdAllocator} and are only ever inserted: finding a
+ * row under an allocated id fails the chunk rather than overwriting that customer. Callers may
+ * update customers in the server id range but not create them there.
+ */
+@Service
+public class CustomerIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerIngestService.class);
+
+    private final CustomerRepository customerRepository;
+    private final CustomerIdAllocator customerIdAllocator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public CustomerIngestService(CustomerRepository customerRepository,
+                                 CustomerIdAllocator customerIdAllocator,
+                                 EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${customers.ingest.chunk-size:1000}") int chunkSize) {
+        this.customerRepository = customerRepository;
+        this.customerIdAllocator = customerIdAllocator;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public IngestReport ingest(Iterator<Customer> customers) {
+        long start = System.nanoTime();
+        IngestReport report = new IngestReport();
+        List<Customer> chunk = new ArrayList<>(chunkSize);
+        Set<Customer> allocated = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (customers.hasNext()) {
+            Customer customer = customers.next();
+            if (customer.getId() == 0)
+                allocated.add(customerIdAllocator.assign(customer));
+            chunk.add(customer);
+            if (chunk.size() == chunkSize || !customers.hasNext()) {
+                report.add(writeChunk(report.getChunks().size(), chunk, allocated));
+                chunk.clear();
+                allocated.clear();
+            }
+        }
+        return report.finish(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private IngestReport.Chunk writeChunk(int index, List<Customer> chunk, Set<Customer> allocated) {
+        long start = System.nanoTime();
+        int inserted = transactionTemplate.execute(status -> {
+            int persisted = 0;
+            Set<Long> known = existingIds(chunk);
+            for (Customer customer : chunk) {
+                if (allocated.contains(customer)) {
+                    if (!known.add(customer.getId()))
+                        throw new DuplicateKeyException("Allocated customer id " + customer.getId() + " is taken");
+                    entityManager.persist(customer);
+                    persisted++;
+                } else if (known.add(customer.getId())) {
+                    if (CustomerIdAllocator.isServerId(customer.getId()))
+                        throw new IllegalArgumentException("Customer " + customer.getId() + " does not exist and its id is in the server range");
+                    entityManager.persist(customer);
+                    persisted++;
+                } else {
+                    customer.setVersion(entityManager.find(Customer.class, customer.getId()).getVersion());
+                    entityManager.merge(customer);
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return persisted;
+        });
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        IngestReport.Chunk result = new IngestReport.Chunk(index, chunk.size(), inserted, chunk.size() - inserted, millis);
+        log.info("Customer ingest chunk {}: {} rows ({} inserted, {} updated) in {} ms, {} rows/s",
+                index, result.getRows(), result.getInserted(), result.getUpdated(),
+                millis, Math.round(result.getRowsPerSecond()));
+        return result;
+    }
+
+    /**
+     * Loads the customers of the chunk that already exist with one {@code IN} query. Besides telling
+     * inserts from updates, this puts them in the persistence context, so merging them does not
+     * issue one select per customer, and their current versions are at hand: an ingest replaces
+     * what it finds rather than failing on versions it was never shown.
+     */
+    private Set<Long> existingIds(List<Customer> chunk) {
+        List<Long> ids = chunk.stream().map(Customer::getId).distinct().collect(toList());
+        return customerRepository.findAllById(ids).stream()
+                .map(Customer::getId)
+                .collect(toSet());
+    }
+}
@@ -0,0 +1,257 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Customer;
+import com.curisprofound.tddwebstack.db.CustomerInvoiceSummary;
+import com.curisprofound.tddwebstack.db.CustomerRepository;
+import com.curisprofound.tddwebstack.db.CustomerSummary;
+import com.curisprofound.tddwebstack.db.Invoice;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The transaction boundary of the customer reads and saves. The reads run in a read-only
+ * transaction, which leaves the session in manual flush mode with no snapshots to dirty check.
+ * Reads and saves alike return customers with each collection the response writes already
+ * initialized: lazy loading outside a transaction is switched off, so serialization cannot fall
+ * back on it. Entity tags come from the one row of {@code customer_revision} and are read in the
+ * transaction of the body they describe.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CustomerService {
+
+    /**
+     * Matches the {@code @BatchSize} of the customer collections, so one chunk
+     * initializes each collection with a single query.
+     */
+    static final int FETCH_BATCH = 100;
+
+    /**
+     * What each invoice summary property sorts by. The totals are aggregates of the summary
+     * query, not columns of the customer, so they are ordered by their expressions.
+     */
+    private static final Map<String, String> SUMMARY_ORDER = new HashMap<>();
+
+    static {
+        SUMMARY_ORDER.put("id", "id");
+        SUMMARY_ORDER.put("name", "name");
+        SUMMARY_ORDER.put("invoiceCount", "count(distinct i.id)");
+        SUMMARY_ORDER.put("productCount", "count(p.id)");
+        SUMMARY_ORDER.put("firstInvoice", "min(i.date)");
+        SUMMARY_ORDER.put("lastInvoice", "max(i.date)");
+    }
+
+    private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
+
+    @Autowired
+    public CustomerService(CustomerRepository customerRepository, EntityManager entityManager) {
+        this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * The unpaged listing: the shipping contact is joined into the customer query and the
+     * collections load in batches of {@link #FETCH_BATCH}, as there is no fetch joining several bags.
+     */
+    public List<Customer> getAll() {
+        List<Customer> customers = customerRepository.findAll();
+        customers.forEach(customer -> initialize(customer, SparseFields.ALL));
+        return customers;
+    }
+
+    public Tagged<List<Customer>> getAll(Predicate<String> notModified) {
+        return tagged(representation(SparseFields.ALL), notModified, this::getAll);
+    }
+
+    /**
+     * The listing after {@code after} with only the collections {@code fields} reaches into loaded,
+     * read in the transaction of its tag unless {@code notModified} accepts the tag.
+     */
+    public Tagged<List<Customer>> getAll(long after, SparseFields fields, Predicate<String> notModified) {
+        return tagged(representation(fields), notModified, () -> {
+            List<Customer> customers = customerRepository.findByIdGreaterThanOrderByIdAsc(after, Pageable.unpaged());
+            customers.forEach(customer -> initialize(customer, fields));
+            return customers;
+        });
+    }
+
+    /**
+     * Keyset page: the customers whose id is strictly greater than {@code after}, in id order,
+     * with every collection the full view serializes already loaded.
+     */
+    public List<Customer> getPage(long after, int size) {
+        return getPage(after, size, SparseFields.ALL);
+    }
+
+    /**
+     * Keyset page with only the collections {@code fields} reaches into loaded; the others
+     * are left uninitialized.
+     */
+    public List<Customer> getPage(long after, int size, SparseFields fields) {
+        List<Customer> customers = customerRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, size));
+        customers.forEach(customer -> initialize(customer, fields));
+        return customers;
+    }
+
+    public Tagged<List<Customer>> getPage(long after, int size, SparseFields fields, Predicate<String> notModified) {
+        return tagged(representation(fields), notModified, () -> getPage(after, size, fields));
+    }
+
+    public Optional<Customer> getById(long id) {
+        return getById(id, SparseFields.ALL);
+    }
+
+    public Optional<Customer> getById(long id, SparseFields fields) {
+        Optional<Customer> customer = customerRepository.findById(id);
+        customer.ifPresent(found -> initialize(found, fields));
+        return customer;
+    }
+
+    /**
+     * Empty when there is no such customer; a matching tag is answered without looking.
+     */
+    public Optional<Tagged<Customer>> getById(long id, SparseFields fields, Predicate<String> notModified) {
+        return Optional.ofNullable(tagged(representation(fields), notModified, () -> getById(id, fields).orElse(null)));
+    }
+
+    /**
+     * Saves the customer and initializes what the full view serializes; the copy a merge returns
+     * holds invoices whose products were never loaded. A customer that does not exist yet cannot
+     * take an id from the server range.
+     */
+    @Transactional
+    public Customer save(Customer customer) {
+        if (CustomerIdAllocator.isServerId(customer.getId()) && !customerRepository.existsById(customer.getId()))
+            throw new IllegalArgumentException("Customer " + customer.getId() + " does not exist and its id is in the server range");
+        Customer saved = customerRepository.save(customer);
+        initialize(saved, SparseFields.ALL);
+        return saved;
+    }
+
+    public List<CustomerSummary> getSummaryPage(long after, int size) {
+        return customerRepository.findSummariesByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, size));
+    }
+
+    public Tagged<List<CustomerSummary>> getSummaryPage(long after, int size, Predicate<String> notModified) {
+        return tagged(CustomerView.SUMMARY.name(), notModified, () -> getSummaryPage(after, size));
+    }
+
+    /**
+     * Invoice and product counts with first and last invoice date per customer, aggregated
+     * by the database in a single query. Ties are broken by customer id so pages do not overlap.
+     *
+     * @throws IllegalArgumentException if the page is sorted by anything but a summary property
+     */
+    public Page<CustomerInvoiceSummary> getInvoiceSummaries(Pageable pageable) {
+        Sort order = Sort.unsorted();
+        for (Sort.Order requested : pageable.getSort()) {
+            String expression = SUMMARY_ORDER.get(requested.getProperty());
+            if (expression == null)
+                throw new IllegalArgumentException("Invoice summaries cannot be sorted by " + requested.getProperty());
+            order = order.and(JpaSort.unsafe(requested.getDirection(), expression));
+        }
+        if (pageable.getSort().getOrderFor("id") == null)
+            order = order.and(Sort.by("id"));
+        return customerRepository.findInvoiceSummaries(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), order));
+    }
+
+    /**
+     * Hands every customer after {@code after} to the consumer as it comes off the cursor.
+     * Full customers are taken in chunks so their collections load in batches, and are
+     * detached once written so the persistence context does not grow with the table.
+     */
+    public long stream(long after, CustomerView view, Consumer<Object> consumer) {
+        long count = 0;
+        if (view == CustomerView.SUMMARY) {
+            try (Stream<CustomerSummary> summaries = customerRepository.streamSummariesByIdGreaterThanOrderByIdAsc(after)) {
+                Iterator<CustomerSummary> iterator = summaries.iterator();
+                while (iterator.hasNext()) {
+                    consumer.accept(iterator.next());
+                    count++;
+                }
+            }
+            return count;
+        }
+        return stream(after, SparseFields.ALL, consumer::accept);
+    }
+
+    /**
+     * Streams full customers with only the collections {@code fields} reaches into loaded.
+     */
+    public long stream(long after, SparseFields fields, Consumer<Customer> consumer) {
+        long count = 0;
+        try (Stream<Customer> customers = customerRepository.streamByIdGreaterThanOrderByIdAsc(after)) {
+            Iterator<Customer> iterator = customers.iterator();
+            List<Customer> chunk = new ArrayList<>(FETCH_BATCH);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == FETCH_BATCH || !iterator.hasNext()) {
+                    chunk.forEach(customer -> initialize(customer, fields));
+                    chunk.forEach(consumer);
+                    chunk.forEach(entityManager::detach);
+                    count += chunk.size();
+                    chunk.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads the revision first and the body after it, in this transaction: the tag can only be as
+     * old as the body or older, so a stale tag costs a full response but never a wrong 304. Null
+     * when there is no body to read.
+     */
+    private <T> Tagged<T> tagged(String representation, Predicate<String> notModified, Supplier<T> body) {
+        String etag = new VersionTag(representation).add(customerRepository.findRevision()).toETag();
+        if (notModified.test(etag))
+            return new Tagged<>(etag, null);
+        T read = body.get();
+        return read == null ? null : new Tagged<>(etag, read);
+    }
+
+    /**
+     * The representation a tag is for; the full view keeps the tag it had before fieldsets.
+     */
+    private static String representation(SparseFields fields) {
+        return fields == SparseFields.ALL ? CustomerView.FULL.name() : CustomerView.FULL.name() + ":" + fields;
+    }
+
+    private void initialize(Customer customer, SparseFields fields) {
+        if (fields.includes("phoneNumbers"))
+            Hibernate.initialize(customer.getPhoneNumbers());
+        if (fields.includes("addresses"))
+            Hibernate.initialize(customer.getAddresses());
+        if (fields.includes("mealPreferences"))
+            Hibernate.initialize(customer.getMealPreferences());
+        if (fields.includes("invoices")) {
+            Hibernate.initialize(customer.getInvoices());
+            if (fields.nested("invoices").includes("products"))
+                customer.getInvoices().forEach(this::initialize);
+        }
+    }
+
+    private void initialize(Invoice invoice) {
+        Hibernate.initialize(invoice.getProducts());
+    }
+}
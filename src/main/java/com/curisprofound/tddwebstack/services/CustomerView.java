@@ -0,0 +1,10 @@
+package com.curisprofound.tddwebstack.services;
+
+/**
+ * How much of a customer a read returns: {@link #SUMMARY} is id and name only,
+ * {@link #FULL} is the entity with its collections fetched in batches.
+ */
+public enum CustomerView {
+    SUMMARY,
+    FULL
+}
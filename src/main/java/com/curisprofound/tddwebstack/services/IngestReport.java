@@ -0,0 +1,56 @@
+package com.curisprofound.tddwebstack.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk ingest: totals for the whole request and one entry per committed chunk. The
+ * request is timed by the wall clock, from the first row read to the last chunk committed, so its
+ * rate includes reading and decoding the body; a chunk is timed by its transaction alone.
+ */
+@Getter
+public class IngestReport {
+
+    private long rows;
+    private long inserted;
+    private long updated;
+    private long millis;
+    private final List<Chunk> chunks = new ArrayList<>();
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond(rows, millis);
+    }
+
+    void add(Chunk chunk) {
+        chunks.add(chunk);
+        rows += chunk.getRows();
+        inserted += chunk.getInserted();
+        updated += chunk.getUpdated();
+    }
+
+    IngestReport finish(long millis) {
+        this.millis = millis;
+        return this;
+    }
+
+    static double rowsPerSecond(long rows, long millis) {
+        return millis == 0 ? rows * 1000.0 : rows * 1000.0 / millis;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Chunk {
+        private final int index;
+        private final int rows;
+        private final int inserted;
+        private final int updated;
+        private final long millis;
+
+        public double getRowsPerSecond() {
+            return IngestReport.rowsPerSecond(rows, millis);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.curisprofound.tddwebstack.services;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Exports invoices joined with their products off a forward-only cursor. The query selects
+ * scalars, so no entity graph is built, and the session is cleared every fetch so nothing
+ * it holds grows with the table.
+ */
+@Service
+@Transactional(readOnly = true)
+public class InvoiceExportService {
+
+    static final String LINES = "select i.id, i.date, i.place, c.id, p.id, p.name, p.number " +
+            "from Invoice i left join i.customer c left join i.products p " +
+            "where i.id > :after " +
+            "order by i.id, p.id";
+
+    private final EntityManager entityManager;
+    private final int fetchSize;
+
+    @Autowired
+    public InvoiceExportService(EntityManager entityManager,
+                                @Value("${invoices.export.fetch-size:1000}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Hands every invoice line after invoice {@code after} to the consumer, in invoice id order,
+     * and returns how many there were.
+     */
+    public long export(long after, Consumer<InvoiceLine> consumer) {
+        Session session = entityManager.unwrap(Session.class);
+        long count = 0;
+        try (ScrollableResults rows = session.createQuery(LINES, Object[].class)
+                .setParameter("after", after)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheable(false)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                consumer.accept(toLine(rows.get()));
+                if (++count % fetchSize == 0)
+                    session.clear();
+            }
+        }
+        return count;
+    }
+
+    private static InvoiceLine toLine(Object[] row) {
+        return new InvoiceLine(
+                (Long) row[0],
+                (Date) row[1],
+                (String) row[2],
+                (Long) row[3],
+                (Long) row[4],
+                (String) row[5],
+                (Long) row[6]);
+    }
+}
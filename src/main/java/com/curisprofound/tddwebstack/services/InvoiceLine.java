@@ -0,0 +1,24 @@
+package com.curisprofound.tddwebstack.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * One row of the invoice export: an invoice with one of its products. An invoice without
+ * products is exported as a single line with empty product columns.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceLine {
+    private long invoiceId;
+    private Date date;
+    private String place;
+    private Long customerId;
+    private Long productId;
+    private String productName;
+    private Long productNumber;
+}
@@ -0,0 +1,27 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.Publisher;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * Stamps books and publishers written through the template or a repository with the time of
+ * the write, which {@link CatalogVersions} reads back as the {@code Last-Modified} of the catalog.
+ * The bulk import bypasses the mapping events and stamps its documents itself.
+ */
+@Component
+public class LastModifiedStamper extends AbstractMongoEventListener<Object> {
+
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<Object> event) {
+        Object source = event.getSource();
+        if (source instanceof Book)
+            ((Book) source).setLastModified(new Date());
+        else if (source instanceof Publisher)
+            ((Publisher) source).setLastModified(new Date());
+    }
+}
@@ -0,0 +1,14 @@
+package com.curisprofound.tddwebstack.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostalCodePublisherCount {
+    private String postalCode;
+    private long publishers;
+    private long books;
+}
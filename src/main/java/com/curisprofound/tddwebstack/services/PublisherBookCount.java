@@ -0,0 +1,15 @@
+package com.curisprofound.tddwebstack.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PublisherBookCount {
+    private String publisherId;
+    private String name;
+    private String postalCode;
+    private long books;
+}
@@ -0,0 +1,95 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.BookChange;
+import com.curisprofound.tddwebstack.db.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Keeps the denormalized {@link Publisher#getBooks()} ids in step with the books written one at a
+ * time; the bulk import adds its own through the publisher upserts. The updates bypass the mapping
+ * events, so the version and stamp of a changed publisher are advanced, its cached copy dropped and
+ * the change recorded here.
+ */
+@Service
+public class PublisherBooks {
+
+    private static final Logger log = LoggerFactory.getLogger(PublisherBooks.class);
+
+    private static final String ID = "_id";
+    private static final String BOOKS = "books";
+    private static final String VERSION = "version";
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final PublisherCache publisherCache;
+    private final BookChangeFeed bookChangeFeed;
+
+    @Autowired
+    public PublisherBooks(ReactiveMongoTemplate mongoTemplate,
+                          PublisherCache publisherCache,
+                          BookChangeFeed bookChangeFeed) {
+        this.mongoTemplate = mongoTemplate;
+        this.publisherCache = publisherCache;
+        this.bookChangeFeed = bookChangeFeed;
+    }
+
+    /**
+     * Lists a saved book with its publisher, if it has one that exists.
+     */
+    public Mono<Void> added(Book book) {
+        Publisher publisher = book.getPublisher();
+        if (publisher == null || publisher.getId() == null || book.getId() == null)
+            return Mono.empty();
+        return update(query(where(ID).is(publisher.getId()).and(BOOKS).ne(book.getId())),
+                changed().addToSet(BOOKS, book.getId()),
+                publisher.getId());
+    }
+
+    /**
+     * Takes a deleted book off every publisher listing it.
+     */
+    public Mono<Void> removed(String bookId) {
+        Query listing = query(where(BOOKS).is(bookId));
+        listing.fields().include(ID);
+        return mongoTemplate.find(listing, Publisher.class)
+                .concatMap(publisher -> update(query(where(ID).is(publisher.getId()).and(BOOKS).is(bookId)),
+                        changed().pull(BOOKS, bookId),
+                        publisher.getId()))
+                .then();
+    }
+
+    private Mono<Void> update(Query query, Update update, String publisherId) {
+        return mongoTemplate.updateFirst(query, update, Publisher.class)
+                .doFinally(signal -> publisherCache.invalidate(publisherId))
+                .filter(result -> result.getModifiedCount() > 0)
+                .flatMap(result -> record(publisherId));
+    }
+
+    private Mono<Void> record(String publisherId) {
+        BookChange change = BookChange.of(mongoTemplate.getCollectionName(Publisher.class), publisherId, BookChange.Operation.SAVED);
+        return bookChangeFeed.record(change)
+                .onErrorResume(e -> {
+                    log.warn("Could not record the change of publisher {}", publisherId, e);
+                    return Mono.empty();
+                });
+    }
+
+    private static Update changed() {
+        return new Update()
+                .inc(VERSION, 1L)
+                .set(LAST_MODIFIED, new Date());
+    }
+}
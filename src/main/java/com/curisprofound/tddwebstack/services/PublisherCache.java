@@ -0,0 +1,97 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Publisher;
+import com.curisprofound.tddwebstack.db.PublisherRepository;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache in front of {@link PublisherRepository}. Entries are held as futures,
+ * so concurrent misses for the same id wait on the one query already in flight, and
+ * nothing blocks while a publisher is loaded. Saves and deletes of publishers invalidate
+ * their entries through {@link PublisherCacheInvalidator}.
+ */
+@Component
+public class PublisherCache implements MeterBinder {
+
+    public static final String NAME = "publishers";
+
+    private final AsyncLoadingCache<String, Publisher> cache;
+
+    @Autowired
+    public PublisherCache(PublisherRepository publisherRepository,
+                          @Value("${books.publisher.cache.maximum-size:10000}") long maximumSize,
+                          @Value("${books.publisher.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .buildAsync(new RepositoryLoader(publisherRepository));
+    }
+
+    public Mono<Publisher> findById(String id) {
+        return Mono.defer(() -> Mono.fromFuture(cache.get(id)));
+    }
+
+    public Flux<Publisher> findAllById(Iterable<String> ids) {
+        return Mono.defer(() -> Mono.fromFuture(cache.getAll(ids)))
+                .flatMapIterable(Map::values);
+    }
+
+    public void invalidate(String id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll(Iterable<String> ids) {
+        cache.synchronous().invalidateAll(ids);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics(cache.synchronous(), NAME, Tags.empty()).bindTo(registry);
+    }
+
+    private static class RepositoryLoader implements AsyncCacheLoader<String, Publisher> {
+
+        private final PublisherRepository publisherRepository;
+
+        RepositoryLoader(PublisherRepository publisherRepository) {
+            this.publisherRepository = publisherRepository;
+        }
+
+        @Override
+        public CompletableFuture<Publisher> asyncLoad(String id, Executor executor) {
+            return publisherRepository.findById(id).toFuture();
+        }
+
+        @Override
+        public CompletableFuture<Map<String, Publisher>> asyncLoadAll(Iterable<? extends String> ids, Executor executor) {
+            Set<String> keys = new HashSet<>();
+            ids.forEach(keys::add);
+            return publisherRepository.findAllById(keys)
+                    .collectMap(Publisher::getId)
+                    .toFuture();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Publisher;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops cached publishers when they are written through the template or a repository.
+ * Deletes by anything other than a single id clear the whole cache.
+ */
+@Component
+public class PublisherCacheInvalidator extends AbstractMongoEventListener<Publisher> {
+
+    private final PublisherCache publisherCache;
+
+    @Autowired
+    public PublisherCacheInvalidator(PublisherCache publisherCache) {
+        this.publisherCache = publisherCache;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Publisher> event) {
+        publisherCache.invalidate(event.getSource().getId());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Publisher> event) {
+        Document query = event.getSource();
+        Object id = query == null ? null : query.get("_id");
+        if (id instanceof String)
+            publisherCache.invalidate((String) id);
+        else
+            publisherCache.invalidateAll();
+    }
+}
@@ -0,0 +1,69 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.convert.LazyLoadingProxy;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Resolves the lazy {@code Book.publisher} references of a book stream through the
+ * {@link PublisherCache}, with at most one {@code $in} query per window of books for the misses.
+ * Books come out in the order they went in, and demand is passed upstream a window at a time.
+ */
+@Component
+public class PublisherResolver {
+
+    private final PublisherCache publisherCache;
+    private final int windowSize;
+
+    @Autowired
+    public PublisherResolver(PublisherCache publisherCache,
+                             @Value("${books.publisher.window-size:100}") int windowSize) {
+        this.publisherCache = publisherCache;
+        this.windowSize = windowSize;
+    }
+
+    public Flux<Book> resolve(Flux<Book> books) {
+        return books
+                .buffer(windowSize)
+                .concatMap(this::resolveWindow);
+    }
+
+    private Flux<Book> resolveWindow(List<Book> window) {
+        Set<String> ids = window.stream()
+                .map(PublisherResolver::unresolvedPublisherId)
+                .filter(Objects::nonNull)
+                .collect(toSet());
+        if (ids.isEmpty())
+            return Flux.fromIterable(window);
+        return publisherCache.findAllById(ids)
+                .collectMap(Publisher::getId)
+                .flatMapIterable(publishers -> fill(window, publishers));
+    }
+
+    private static List<Book> fill(List<Book> window, Map<String, Publisher> publishers) {
+        window.forEach(book -> {
+            String id = unresolvedPublisherId(book);
+            if (id != null)
+                book.setPublisher(publishers.get(id));
+        });
+        return window;
+    }
+
+    private static String unresolvedPublisherId(Book book) {
+        Object publisher = book.getPublisher();
+        if (!(publisher instanceof LazyLoadingProxy))
+            return null;
+        return ((LazyLoadingProxy) publisher).toDBRef().getId().toString();
+    }
+}
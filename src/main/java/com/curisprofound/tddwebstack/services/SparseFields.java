@@ -0,0 +1,131 @@
+package com.curisprofound.tddwebstack.services;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A sparse fieldset such as {@code fields=id,name,invoices.date}: the properties a response is
+ * written with, dotted paths reaching into nested objects and the elements of collections. A
+ * property named without a path below it is written whole. Reads use it to initialize only the
+ * associations a response needs, and {@link #project} to write only the properties asked for.
+ */
+public final class SparseFields {
+
+    /**
+     * Every property, to any depth.
+     */
+    public static final SparseFields ALL = new SparseFields(null);
+
+    private final Map<String, SparseFields> fields;
+
+    private SparseFields(Map<String, SparseFields> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Parses a comma separated list of property paths and checks them against {@code type};
+     * properties that are not written as JSON cannot be asked for.
+     *
+     * @throws IllegalArgumentException naming the first path that does not resolve
+     */
+    public static SparseFields parse(String spec, Class<?> type) {
+        Map<String, SparseFields> fields = new LinkedHashMap<>();
+        for (String path : spec.split(",")) {
+            if (path.trim().isEmpty())
+                continue;
+            add(fields, path.trim(), path.trim(), type);
+        }
+        if (fields.isEmpty())
+            throw new IllegalArgumentException("No fields requested");
+        return new SparseFields(fields);
+    }
+
+    public boolean includes(String property) {
+        return fields == null || fields.containsKey(property);
+    }
+
+    /**
+     * The fields asked for below {@code property}; all of them if it is written whole.
+     */
+    public SparseFields nested(String property) {
+        if (fields == null)
+            return ALL;
+        SparseFields nested = fields.get(property);
+        return nested == null ? ALL : nested;
+    }
+
+    /**
+     * The requested properties of {@code value} as a map in request order, or the value itself
+     * when every field is requested. Only the getters of requested properties are called.
+     */
+    public Object project(Object value) {
+        if (fields == null || value == null)
+            return value;
+        if (value instanceof Collection)
+            return ((Collection<?>) value).stream()
+                    .map(this::project)
+                    .collect(Collectors.toList());
+        BeanWrapperImpl bean = new BeanWrapperImpl(value);
+        Map<String, Object> projected = new LinkedHashMap<>();
+        fields.forEach((property, nested) -> projected.put(property, nested.project(bean.getPropertyValue(property))));
+        return projected;
+    }
+
+    @Override
+    public String toString() {
+        if (fields == null)
+            return "*";
+        return fields.entrySet().stream()
+                .map(field -> field.getValue().fields == null ?
+                        field.getKey() :
+                        field.getKey() + "(" + field.getValue() + ")")
+                .collect(Collectors.joining(","));
+    }
+
+    private static void add(Map<String, SparseFields> fields, String path, String spec, Class<?> type) {
+        int dot = path.indexOf('.');
+        String property = dot < 0 ? path : path.substring(0, dot);
+        PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, property);
+        Field field = ReflectionUtils.findField(type, property);
+        if (descriptor == null || descriptor.getReadMethod() == null ||
+                descriptor.getReadMethod().getDeclaringClass() == Object.class ||
+                descriptor.getReadMethod().isAnnotationPresent(JsonIgnore.class) ||
+                (field != null && field.isAnnotationPresent(JsonIgnore.class)))
+            throw new IllegalArgumentException("Unknown field: " + spec);
+        if (dot < 0) {
+            fields.put(property, ALL);
+            return;
+        }
+        SparseFields nested = fields.get(property);
+        if (nested == ALL)
+            return;
+        if (nested == null) {
+            nested = new SparseFields(new LinkedHashMap<>());
+            fields.put(property, nested);
+        }
+        add(nested.fields, path.substring(dot + 1), spec, elementType(descriptor, spec));
+    }
+
+    /**
+     * Paths only reach into beans and collections of beans; maps and simple values are written whole.
+     */
+    private static Class<?> elementType(PropertyDescriptor descriptor, String spec) {
+        ResolvableType type = ResolvableType.forMethodReturnType(descriptor.getReadMethod());
+        Class<?> element = Collection.class.isAssignableFrom(type.resolve(Object.class)) ?
+                type.asCollection().resolveGeneric(0) :
+                type.resolve(Object.class);
+        if (element == null || Map.class.isAssignableFrom(element) || BeanUtils.isSimpleValueType(element))
+            throw new IllegalArgumentException("Field has no properties to select: " + spec);
+        return element;
+    }
+}
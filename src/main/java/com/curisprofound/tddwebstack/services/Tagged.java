@@ -0,0 +1,21 @@
+package com.curisprofound.tddwebstack.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A representation with the entity tag of the revision it was read at. The body is null when the
+ * caller's tag still matched, as it is not read then.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Tagged<T> {
+    private String etag;
+    private T body;
+
+    public boolean isModified() {
+        return body != null;
+    }
+}
@@ -0,0 +1,44 @@
+package com.curisprofound.tddwebstack.services;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Weak entity tag digested from the ids and versions a representation is built from, so that a
+ * conditional read can be answered without loading what it would return. It is weak because it
+ * follows the data rather than the bytes written.
+ */
+final class VersionTag {
+
+    private final MessageDigest digest;
+    private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+
+    VersionTag(String representation) {
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        add(representation);
+    }
+
+    VersionTag add(String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        return this;
+    }
+
+    VersionTag add(long value) {
+        buffer.clear();
+        buffer.putLong(value);
+        digest.update(buffer.array());
+        return this;
+    }
+
+    String toETag() {
+        return "W/\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + "\"";
+    }
+}
@@ -0,0 +1,87 @@
+-- Schema as Hibernate generated it before migrations took over; an existing database
+-- built by auto-DDL is baselined at this version instead of running it.
+
+create sequence hibernate_sequence start with 1 increment by 1;
+
+create table customer (
+    id bigint not null,
+    name varchar(255),
+    shipping_contact_id bigint,
+    primary key (id)
+);
+
+create table customer_addresses (
+    customer_id bigint not null,
+    address_line1 varchar(255),
+    address_line2 varchar(255),
+    city varchar(255),
+    high_rise_extension_id bigint,
+    postal_code varchar(255)
+);
+
+create table customer_invoices (
+    customer_id bigint not null,
+    invoices_id bigint not null
+);
+
+create table customer_meal_preferences (
+    customer_id bigint not null,
+    meal_preferences varchar(255),
+    meal_preferences_key varchar(255) not null,
+    primary key (customer_id, meal_preferences_key)
+);
+
+create table customer_phone_numbers (
+    customer_id bigint not null,
+    phone_numbers varchar(255)
+);
+
+create table high_rise_address_extension (
+    id bigint not null,
+    buzzer_code varchar(255),
+    floor varchar(255),
+    suite varchar(255),
+    primary key (id)
+);
+
+create table invoice (
+    id bigint not null,
+    date timestamp,
+    place varchar(255),
+    customer_id bigint,
+    primary key (id)
+);
+
+create table invoice_products (
+    invoices_id bigint not null,
+    products_id bigint not null
+);
+
+create table product (
+    id bigint not null,
+    name varchar(255),
+    number bigint not null,
+    primary key (id)
+);
+
+create table shipping_contact (
+    id bigint not null,
+    name varchar(255),
+    phone_number varchar(255),
+    customer_id bigint,
+    primary key (id)
+);
+
+alter table customer_invoices add constraint uk_customer_invoices_invoice unique (invoices_id);
+
+alter table customer add constraint fk_customer_shipping_contact foreign key (shipping_contact_id) references shipping_contact;
+alter table customer_addresses add constraint fk_customer_addresses_high_rise foreign key (high_rise_extension_id) references high_rise_address_extension;
+alter table customer_addresses add constraint fk_customer_addresses_customer foreign key (customer_id) references customer;
+alter table customer_invoices add constraint fk_customer_invoices_invoice foreign key (invoices_id) references invoice;
+alter table customer_invoices add constraint fk_customer_invoices_customer foreign key (customer_id) references customer;
+alter table customer_meal_preferences add constraint fk_customer_meal_preferences_customer foreign key (customer_id) references customer;
+alter table customer_phone_numbers add constraint fk_customer_phone_numbers_customer foreign key (customer_id) references customer;
+alter table invoice add constraint fk_invoice_customer foreign key (customer_id) references customer;
+alter table invoice_products add constraint fk_invoice_products_product foreign key (products_id) references product;
+alter table invoice_products add constraint fk_invoice_products_invoice foreign key (invoices_id) references invoice;
+alter table shipping_contact add constraint fk_shipping_contact_customer foreign key (customer_id) references customer;
@@ -0,0 +1,15 @@
+-- H2 backs each foreign key with a single column index of its own; these cover the
+-- lookups the application actually runs.
+
+-- invoices of a customer, newest or oldest first, and the first/last invoice summary
+create index idx_invoice_customer_date on invoice (customer_id, date);
+-- invoices in a date range
+create index idx_invoice_date on invoice (date);
+-- products of an invoice in product order, as the export reads them, without touching the table
+create index idx_invoice_products_invoice_product on invoice_products (invoices_id, products_id);
+
+create index idx_customer_name on customer (name);
+create index idx_customer_addresses_postal_code on customer_addresses (postal_code);
+
+-- one shipping contact per customer, as the one-to-one mapping implies
+alter table shipping_contact add constraint uk_shipping_contact_customer unique (customer_id);
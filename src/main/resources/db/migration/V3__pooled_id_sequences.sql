@@ -0,0 +1,18 @@
+-- One sequence per generated id, replacing the shared hibernate_sequence. Hibernate takes ids
+-- from them in blocks (PooledSequenceGenerator), so the increment must be at least the
+-- allocation size it is configured with.
+create sequence invoice_seq start with 1 increment by 50;
+create sequence product_seq start with 1 increment by 50;
+create sequence shipping_contact_seq start with 1 increment by 50;
+create sequence high_rise_address_extension_seq start with 1 increment by 50;
+-- customers posted without an id
+create sequence customer_seq start with 1 increment by 50;
+
+-- carry on after every id handed out so far
+alter sequence invoice_seq restart with (select current_value + 1 from information_schema.sequences where sequence_name = 'HIBERNATE_SEQUENCE');
+alter sequence product_seq restart with (select current_value + 1 from information_schema.sequences where sequence_name = 'HIBERNATE_SEQUENCE');
+alter sequence shipping_contact_seq restart with (select current_value + 1 from information_schema.sequences where sequence_name = 'HIBERNATE_SEQUENCE');
+alter sequence high_rise_address_extension_seq restart with (select current_value + 1 from information_schema.sequences where sequence_name = 'HIBERNATE_SEQUENCE');
+alter sequence customer_seq restart with (select coalesce(max(id), 0) + 1 from customer);
+
+drop sequence hibernate_sequence;
@@ -0,0 +1,6 @@
+-- Optimistic locking versions; they also back the entity tags of the customer reads.
+alter table customer add column version bigint default 0 not null;
+alter table invoice add column version bigint default 0 not null;
+alter table product add column version bigint default 0 not null;
+alter table shipping_contact add column version bigint default 0 not null;
+alter table high_rise_address_extension add column version bigint default 0 not null;
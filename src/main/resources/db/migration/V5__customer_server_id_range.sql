@@ -0,0 +1,3 @@
+-- Customers posted without an id take one from customer_seq, those posted with one keep it.
+-- Move the sequence into a range of its own so it never hands out an id a caller picked.
+alter sequence customer_seq restart with (select greatest(coalesce(max(id), 0) + 1, 1099511627776) from customer);
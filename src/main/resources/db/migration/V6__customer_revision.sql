@@ -0,0 +1,9 @@
+-- One counter for everything a customer representation is built from: customers, their shipping
+-- contacts, invoices, invoice products and high-rise address extensions. Every transaction writing
+-- any of them adds one before it commits (CustomerRevisionListener), so the customer entity tags
+-- are read from this single row.
+create table customer_revision (
+  id int primary key,
+  revision bigint not null
+);
+insert into customer_revision (id, revision) values (1, 0);
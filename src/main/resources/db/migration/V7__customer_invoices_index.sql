@@ -0,0 +1,4 @@
+-- Customer.invoices maps through the customer_invoices join table rather than invoice.customer_id,
+-- so idx_invoice_customer_date does not serve it. The batch load of the invoices of a customer
+-- page reads this index alone, ids included, without touching the table.
+create index idx_customer_invoices_customer_invoice on customer_invoices (customer_id, invoices_id);
@@ -7,6 +7,7 @@ import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import reactor.core.publisher.Flux;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -151,6 +152,33 @@ public class AssertOnDb {
             }
 
 
+            public TableAssertions hasIndexOn(String... columns) {
+                return checkIndex(false, columns);
+            }
+
+            public TableAssertions hasUniqueIndexOn(String... columns) {
+                return checkIndex(true, columns);
+            }
+
+            private TableAssertions checkIndex(boolean unique, String... columns) {
+                String expected = String.join(",", columns).toUpperCase();
+                String msg = tableName + (not ? " has" : " doesn't have") +
+                        (unique ? " a unique" : " an") + " index on " + expected;
+                Map<String, String> indexes = new HashMap<>();
+                getIndexes().stream()
+                        .filter(i -> !unique || !(Boolean) i.get("NON_UNIQUE"))
+                        .forEach(i -> indexes.merge(
+                                (String) i.get("INDEX_NAME"),
+                                (String) i.get("COLUMN_NAME"),
+                                (a, b) -> a + "," + b));
+                boolean actual = indexes.containsValue(expected);
+                if (not)
+                    assertFalse(msg, actual);
+                else
+                    assertTrue(msg, actual);
+                return chain();
+            }
+
             private Optional<String> checkColumnsByName(boolean not, String... names) {
                 List<Map<String, Object>> columnNames = getColumns();
                 for (String name : names)
@@ -185,6 +213,14 @@ public class AssertOnDb {
                 );
             }
 
+            private List<Map<String, Object>> getIndexes() {
+                return db.query(
+                        "select * from information_schema.indexes where table_name = ? order by index_name, ordinal_position",
+                        new Object[]{tableName.toUpperCase()},
+                        new ColumnMapRowMapper()
+                );
+            }
+
             private List<Map<String, Object>> getColumns() {
                 return db.query(
                         "show columns from " + tableName.toUpperCase(), new ColumnMapRowMapper());
@@ -3,16 +3,41 @@ package com.curisprofound.tddwebstack.cucumber;
 import com.curisprofound.tddwebstack.assertions.AssertOnClass;
 import com.curisprofound.tddwebstack.assertions.AssertOnDb;
 import com.curisprofound.tddwebstack.db.*;
+import com.curisprofound.tddwebstack.services.CustomerIdAllocator;
+import com.curisprofound.tddwebstack.services.CustomerIngestService;
+import com.curisprofound.tddwebstack.services.CustomerService;
+import com.curisprofound.tddwebstack.services.InvoiceExportService;
+import com.curisprofound.tddwebstack.services.InvoiceLine;
+import com.curisprofound.tddwebstack.services.SparseFields;
+import com.curisprofound.tddwebstack.services.Tagged;
 import cucumber.api.PendingException;
 import cucumber.api.java.After;
 import cucumber.api.java.en.*;
+import org.hibernate.Hibernate;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
 import java.util.*;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 
 public class HibernateJPASteps extends StepsBase {
 
@@ -20,8 +45,32 @@ public class HibernateJPASteps extends StepsBase {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private InvoiceExportService invoiceExportService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerIdAllocator customerIdAllocator;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @After("@HibernateJPA")
     public void afterHibernateJPA() {
+        Customer customer = Get(Customer.class);
+        if (customer != null)
+            customerRepository.deleteById(customer.getId());
         tearDown();
     }
 
@@ -112,6 +161,32 @@ public class HibernateJPASteps extends StepsBase {
     }
 
 
+    @Then("^the database schema is at migration version \"([^\"]*)\"$")
+    public void theDatabaseSchemaIsAtMigrationVersion(String version) throws Throwable {
+        assertEquals(
+                version,
+                jdbcTemplate.queryForObject(
+                        "select \"version\" from \"flyway_schema_history\" where \"success\" order by \"installed_rank\" desc limit 1",
+                        String.class)
+        );
+    }
+
+    @And("^the \"([^\"]*)\" table has an index on \"([^\"]*)\"$")
+    public void theTableHasAnIndexOn(String table, String columns) throws Throwable {
+        AssertOnDb
+                .ForH2(jdbcTemplate)
+                .Table(table)
+                .hasIndexOn(columns.split(","));
+    }
+
+    @And("^the \"([^\"]*)\" table has a unique index on \"([^\"]*)\"$")
+    public void theTableHasAUniqueIndexOn(String table, String columns) throws Throwable {
+        AssertOnDb
+                .ForH2(jdbcTemplate)
+                .Table(table)
+                .hasUniqueIndexOn(columns.split(","));
+    }
+
     @But("^The \"([^\"]*)\" table has no link to \"([^\"]*)\" table$")
     public void theTableHasNoLinkToTable(String source, String target) throws Throwable {
         AssertOnDb
@@ -155,5 +230,376 @@ public class HibernateJPASteps extends StepsBase {
                 .isOfType(getClassFromKey(arg1));
     }
 
-}
+    @Given("^I have saved a Product named \"([^\"]*)\" in its own transaction$")
+    public void iHaveSavedAProductNamedInItsOwnTransaction(String name) throws Throwable {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Product product = new Product();
+            product.setName(name);
+            em.persist(product);
+            em.getTransaction().commit();
+            Add(Product.class, product);
+        } finally {
+            em.close();
+        }
+    }
+
+    @Then("^the second-level cache holds the saved Product$")
+    public void theSecondLevelCacheHoldsTheSavedProduct() throws Throwable {
+        assertTrue(
+                entityManagerFactory.getCache().contains(Product.class, Get(Product.class).getId())
+        );
+    }
+
+    @And("^the second-level cache has a region named \"([^\"]*)\"$")
+    public void theSecondLevelCacheHasARegionNamed(String region) throws Throwable {
+        String[] regions = entityManagerFactory.unwrap(SessionFactory.class)
+                .getStatistics()
+                .getSecondLevelCacheRegionNames();
+        assertTrue(
+                "no second-level cache region " + region,
+                Arrays.asList(regions).contains(region)
+        );
+    }
+
+    @Given("^I have saved an invoice with products \"([^\"]*)\" and an invoice without products$")
+    public void iHaveSavedAnInvoiceWithProductsAndAnInvoiceWithoutProducts(String names) throws Throwable {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<Product> products = new ArrayList<>();
+            for (String name : names.split(",")) {
+                Product product = new Product();
+                product.setName(name.trim());
+                em.persist(product);
+                products.add(product);
+            }
+            Invoice first = new Invoice(0, new Date(), "placeOne", null, products, 0);
+            Invoice second = new Invoice(0, new Date(), "place, two", null, new ArrayList<>(), 0);
+            em.persist(first);
+            em.persist(second);
+            em.getTransaction().commit();
+            Add(Invoice.class, first, "firstInvoice");
+        } finally {
+            em.close();
+        }
+    }
+
+    @When("^I export the invoices$")
+    public void iExportTheInvoices() throws Throwable {
+        List<InvoiceLine> lines = new ArrayList<>();
+        invoiceExportService.export(Get(Invoice.class, "firstInvoice").getId() - 1, lines::add);
+        Add(List.class, lines, "invoiceLines");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Then("^the export has (\\d+) lines$")
+    public void theExportHasLines(int count) throws Throwable {
+        assertEquals(
+                count,
+                Get(List.class, "invoiceLines").size()
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @And("^export line (\\d+) is for product \"([^\"]*)\"$")
+    public void exportLineIsForProduct(int index, String name) throws Throwable {
+        List<InvoiceLine> lines = Get(List.class, "invoiceLines");
+        assertEquals(
+                name,
+                lines.get(index - 1).getProductName()
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @And("^the last export line has no product$")
+    public void theLastExportLineHasNoProduct() throws Throwable {
+        List<InvoiceLine> lines = Get(List.class, "invoiceLines");
+        assertNull(
+                lines.get(lines.size() - 1).getProductId()
+        );
+    }
+
+    @Given("^customer (\\d+) has an invoice with products \"([^\"]*)\" and an invoice with products \"([^\"]*)\"$")
+    public void customerHasAnInvoiceWithProductsAndAnInvoiceWithProducts(long id, String first, String second) throws Throwable {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Customer customer = newCustomer(id);
+            for (String names : Arrays.asList(first, second)) {
+                List<Product> products = new ArrayList<>();
+                for (String name : names.split(",")) {
+                    Product product = new Product();
+                    product.setName(name.trim());
+                    em.persist(product);
+                    products.add(product);
+                }
+                Invoice invoice = new Invoice(0, new Date(), "place", null, products, 0);
+                em.persist(invoice);
+                customer.getInvoices().add(invoice);
+            }
+            em.persist(customer);
+            em.getTransaction().commit();
+            Add(Customer.class, customer);
+        } finally {
+            em.close();
+        }
+    }
+
+    @When("^I read the invoice summaries$")
+    public void iReadTheInvoiceSummaries() throws Throwable {
+        Add(List.class, customerService.getInvoiceSummaries(PageRequest.of(0, 1000, Sort.by("id"))).getContent(), "invoiceSummaries");
+    }
+
+    @When("^I read the invoice summaries sorted by \"([^\"]*)\" descending$")
+    public void iReadTheInvoiceSummariesSortedByDescending(String property) throws Throwable {
+        Add(List.class, customerService.getInvoiceSummaries(PageRequest.of(0, 1000, Sort.by(Sort.Direction.DESC, property))).getContent(), "invoiceSummaries");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Then("^the invoice summaries are in descending order of product count$")
+    public void theInvoiceSummariesAreInDescendingOrderOfProductCount() throws Throwable {
+        List<CustomerInvoiceSummary> summaries = Get(List.class, "invoiceSummaries");
+        assertTrue(
+                !summaries.isEmpty()
+        );
+        for (int i = 1; i < summaries.size(); i++)
+            assertTrue(
+                    summaries.get(i - 1).getProductCount() >= summaries.get(i).getProductCount()
+            );
+    }
+
+    @SuppressWarnings("unchecked")
+    @Then("^the invoice summary of customer (\\d+) counts (\\d+) invoices and (\\d+) products$")
+    public void theInvoiceSummaryOfCustomerCountsInvoicesAndProducts(long id, long invoices, long products) throws Throwable {
+        List<CustomerInvoiceSummary> summaries = Get(List.class, "invoiceSummaries");
+        CustomerInvoiceSummary summary = summaries.stream()
+                .filter(s -> s.getId() == id)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no invoice summary for customer " + id));
+        assertEquals(
+                invoices,
+                summary.getInvoiceCount()
+        );
+        assertEquals(
+                products,
+                summary.getProductCount()
+        );
+        assertTrue(
+                !summary.getFirstInvoice().after(summary.getLastInvoice())
+        );
+    }
+
+    @When("^I read customer (\\d+) from the customer repository$")
+    public void iReadCustomerFromTheCustomerRepository(long id) throws Throwable {
+        Add(Customer.class, customerRepository.findById(id).orElse(null), "readCustomer");
+    }
+
+    @Then("^its invoices cannot be loaded outside a transaction$")
+    public void itsInvoicesCannotBeLoadedOutsideATransaction() throws Throwable {
+        Customer customer = Get(Customer.class, "readCustomer");
+        try {
+            customer.getInvoices().size();
+            fail("the invoices of customer " + customer.getId() + " were loaded outside a transaction");
+        } catch (LazyInitializationException expected) {
+        }
+    }
+
+    @When("^I read all customers from the customer service$")
+    public void iReadAllCustomersFromTheCustomerService() throws Throwable {
+        Add(List.class, customerService.getAll(), "allCustomers");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Then("^the invoices of customer (\\d+) and their products are initialized$")
+    public void theInvoicesOfCustomerAndTheirProductsAreInitialized(long id) throws Throwable {
+        List<Customer> customers = Get(List.class, "allCustomers");
+        Customer customer = customers.stream()
+                .filter(c -> c.getId() == id)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no customer " + id));
+        assertTrue(
+                Hibernate.isInitialized(customer.getInvoices())
+        );
+        assertEquals(
+                2,
+                customer.getInvoices().size()
+        );
+        for (Invoice invoice : customer.getInvoices())
+            assertTrue(
+                    Hibernate.isInitialized(invoice.getProducts())
+            );
+    }
+
+    @Given("^I have saved (\\d+) products in one transaction$")
+    public void iHaveSavedProductsInOneTransaction(int count) throws Throwable {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long prepared = statistics.getPrepareStatementCount();
+        List<Long> ids = new ArrayList<>();
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (int i = 0; i < count; i++) {
+                Product product = new Product();
+                product.setName("pooled" + i);
+                em.persist(product);
+                ids.add(product.getId());
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        Add(List.class, ids, "ids");
+        Add(Long.class, statistics.getPrepareStatementCount() - prepared, "preparedStatements");
+    }
+
+    @And("^saving them prepared at most (\\d+) statements$")
+    public void savingThemPreparedAtMostStatements(long max) throws Throwable {
+        long prepared = Get(Long.class, "preparedStatements");
+        assertTrue(
+                prepared + " statements prepared",
+                prepared <= max
+        );
+    }
+
+    @When("^I assign ids to (\\d+) customers without one$")
+    public void iAssignIdsToCustomersWithoutOne(int count) throws Throwable {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            ids.add(customerIdAllocator.assign(new Customer()).getId());
+        Add(List.class, ids, "ids");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Then("^the ids are consecutive$")
+    public void theIdsAreConsecutive() throws Throwable {
+        List<Long> ids = Get(List.class, "ids");
+        for (int i = 1; i < ids.size(); i++)
+            assertEquals(
+                    ids.get(0) + i,
+                    (long) ids.get(i)
+            );
+    }
 
+    @SuppressWarnings("unchecked")
+    @And("^the ids are in the server range$")
+    public void theIdsAreInTheServerRange() throws Throwable {
+        List<Long> ids = Get(List.class, "ids");
+        for (long id : ids)
+            assertTrue(
+                    id + " is below the server range",
+                    CustomerIdAllocator.isServerId(id)
+            );
+    }
+
+    @And("^a customer with id (\\d+) keeps it$")
+    public void aCustomerWithIdKeepsIt(long id) throws Throwable {
+        Customer customer = new Customer();
+        customer.setId(id);
+        assertEquals(
+                id,
+                customerIdAllocator.assign(customer).getId()
+        );
+    }
+
+    @Given("^customer (\\d+) is named \"([^\"]*)\"$")
+    public void customerIsNamed(long id, String name) throws Throwable {
+        Customer customer = newCustomer(id);
+        customer.setName(name);
+        Add(Customer.class, customerRepository.save(customer));
+    }
+
+    @When("^I ingest a customer named \"([^\"]*)\" without an id and it is allocated (\\d+)$")
+    public void iIngestACustomerNamedWithoutAnIdAndItIsAllocated(String name, long id) throws Throwable {
+        CustomerIdAllocator allocator = new CustomerIdAllocator(jdbcTemplate, 1) {
+            @Override
+            public synchronized long next() {
+                return id;
+            }
+        };
+        CustomerIngestService ingestService =
+                new CustomerIngestService(customerRepository, allocator, entityManager, transactionManager, 10);
+        try {
+            ingestService.ingest(Collections.singletonList(newCustomer(name)).iterator());
+        } catch (RuntimeException e) {
+            Add(RuntimeException.class, e);
+        }
+    }
+
+    @Then("^the ingest fails on the taken id$")
+    public void theIngestFailsOnTheTakenId() throws Throwable {
+        assertTrue(
+                "the ingest went through",
+                Get(RuntimeException.class) instanceof DuplicateKeyException
+        );
+    }
+
+    @And("^customer (\\d+) is still named \"([^\"]*)\"$")
+    public void customerIsStillNamed(long id, String name) throws Throwable {
+        assertEquals(
+                name,
+                customerRepository.findById(id).map(Customer::getName).orElse(null)
+        );
+    }
+
+    @And("^customer (\\d+) has an address on floor \"([^\"]*)\" of a high-rise$")
+    public void customerHasAnAddressOnFloorOfAHighRise(long id, String floor) throws Throwable {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            HighRiseAddressExtension extension = new HighRiseAddressExtension(0, "suite", floor, "buzzer", 0);
+            em.persist(extension);
+            em.find(Customer.class, id).getAddresses()
+                    .add(new Address("line1", "line2", "city", "postalCode", extension));
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @When("^I read the tag of customer (\\d+)$")
+    public void iReadTheTagOfCustomer(long id) throws Throwable {
+        Add(String.class, customerService.getById(id, SparseFields.ALL, tag -> false).map(Tagged::getEtag).orElse(null), "customerTag");
+    }
+
+    @And("^I rename the product \"([^\"]*)\" to \"([^\"]*)\"$")
+    public void iRenameTheProductTo(String name, String rename) throws Throwable {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createQuery("select p from Product p where p.name = :name", Product.class)
+                    .setParameter("name", name)
+                    .getSingleResult()
+                    .setName(rename);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @When("^I move the high-rise address of customer (\\d+) to floor \"([^\"]*)\"$")
+    public void iMoveTheHighRiseAddressOfCustomerToFloor(long id, String floor) throws Throwable {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (Address address : em.find(Customer.class, id).getAddresses())
+                address.getHighRiseExtension().setFloor(floor);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Then("^the tag of customer (\\d+) has changed$")
+    public void theTagOfCustomerHasChanged(long id) throws Throwable {
+        String before = Get(String.class, "customerTag");
+        String after = customerService.getById(id, SparseFields.ALL, tag -> false).map(Tagged::getEtag).orElse(null);
+        assertNotNull(after);
+        assertNotEquals(
+                before,
+                after
+        );
+        Add(String.class, after, "customerTag");
+    }
+}
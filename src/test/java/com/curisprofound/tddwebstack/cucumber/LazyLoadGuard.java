@@ -0,0 +1,57 @@
+package com.curisprofound.tddwebstack.cucumber;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records every lazy collection or proxy loaded by a session with no transaction in progress.
+ * A closed session already fails such a load; an open one would quietly run it in auto-commit.
+ */
+@Component
+public class LazyLoadGuard implements InitializeCollectionEventListener, LoadEventListener {
+
+    private final List<String> loads = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public LazyLoadGuard(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.INIT_COLLECTION, this);
+        registry.appendListeners(EventType.LOAD, this);
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+        if (!event.getSession().isTransactionInProgress())
+            loads.add(event.getCollection().getRole() + "#" + event.getAffectedOwnerIdOrNull());
+    }
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+        if (loadType == IMMEDIATE_LOAD && !event.getSession().isTransactionInProgress())
+            loads.add(event.getEntityClassName() + "#" + event.getEntityId());
+    }
+
+    /**
+     * The loads recorded since the last call.
+     */
+    public synchronized List<String> drain() {
+        List<String> drained = new ArrayList<>(loads);
+        loads.removeAll(drained);
+        return drained;
+    }
+}
@@ -0,0 +1,54 @@
+package com.curisprofound.tddwebstack.cucumber;
+
+import com.curisprofound.tddwebstack.db.Customer;
+import cucumber.api.java.After;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fails every scenario that lazily loaded anything outside a transaction. The hook lives here
+ * rather than in {@link StepsBase}, as Cucumber does not allow glue classes to inherit hooks.
+ */
+public class LazyLoadSteps extends StepsBase {
+
+    @Autowired
+    private LazyLoadGuard lazyLoadGuard;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @After
+    public void afterEveryScenario() {
+        List<String> loads = lazyLoadGuard.drain();
+        assertTrue(
+                "lazily loaded outside a transaction: " + loads,
+                loads.isEmpty()
+        );
+    }
+
+    @When("^I load the invoices of customer (\\d+) in a session without a transaction$")
+    public void iLoadTheInvoicesOfCustomerInASessionWithoutATransaction(long id) throws Throwable {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.find(Customer.class, id).getInvoices().size();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Then("^the lazy load guard has flagged the invoices of customer (\\d+)$")
+    public void theLazyLoadGuardHasFlaggedTheInvoicesOfCustomer(long id) throws Throwable {
+        List<String> loads = lazyLoadGuard.drain();
+        assertTrue(
+                "no lazy load flagged in " + loads,
+                loads.contains(Customer.class.getName() + ".invoices#" + id)
+        );
+    }
+}
@@ -245,9 +245,15 @@ public class MockitoSteps extends StepsBase {
 
     @And("^The class has a method \"([^\"]*)\" with parameters \"([^\"]*)\" and return Type \"([^\"]*)\"$")
     public void theClassHasAMethodWithParametersAndReturnType(String method, String parameters, String returnType) throws Throwable {
-
-        // Write code here that turns the phrase above into concrete actions
-        throw new PendingException();
+        Class<?>[] types = Arrays.stream(parameters.split(","))
+                .map(String::trim)
+                .filter(c -> !c.equalsIgnoreCase(""))
+                .map(this::getClassFromKey)
+                .toArray(Class<?>[]::new);
+        AssertOnClass
+                .For(Get("ClassName"))
+                .Method(method, types)
+                .hasReturnType(TypeDef.parse(returnType).get(0));
     }
 
     @Given("^I have a signature of \"([^\"]*)\"$")
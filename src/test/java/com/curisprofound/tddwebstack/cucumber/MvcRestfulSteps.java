@@ -4,33 +4,60 @@ import com.curisprofound.tddwebstack.assertions.AssertOnClass;
 import com.curisprofound.tddwebstack.controllers.CustomerController;
 import com.curisprofound.tddwebstack.db.Customer;
 import com.curisprofound.tddwebstack.db.CustomerRepository;
+import com.curisprofound.tddwebstack.db.CustomerSummary;
+import com.curisprofound.tddwebstack.db.Invoice;
+import com.curisprofound.tddwebstack.db.Product;
+import com.curisprofound.tddwebstack.security.IssuedToken;
+import com.curisprofound.tddwebstack.security.VerifiedCredentials;
+import com.curisprofound.tddwebstack.services.CustomerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import cucumber.api.PendingException;
 import cucumber.api.java.After;
 import cucumber.api.java.Before;
 import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
 import cucumber.api.java.en.Then;
 import cucumber.api.java.en.When;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -42,6 +69,15 @@ public class MvcRestfulSteps extends StepsBase{
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Before("@MvcRestful")
     public void beforeMvcRestful() {
         mockMvc(this.getClass(), "beforeMvcRestful");
@@ -50,6 +86,12 @@ public class MvcRestfulSteps extends StepsBase{
     @After("@MvcRestful")
     public void afterMvcResult() {
         reset(customerRepository);
+        List<Customer> ingested = Get(List.class, "IngestedCustomers");
+        if (ingested != null)
+            customerRepository.deleteAll(ingested);
+        Long stored = Get(Long.class, "StoredCustomer");
+        if (stored != null)
+            customerRepository.deleteById(stored);
         tearDown();
     }
 
@@ -92,6 +134,47 @@ public class MvcRestfulSteps extends StepsBase{
         );
     }
 
+    @When("^I request the \"([^\"]*)\" endpoint$")
+    public void iRequestTheEndpoint(String endpoint) throws Throwable {
+        Add(ResultActions.class, Get(MockMvc.class).perform(get(endpoint)));
+    }
+
+    @And("^each member of the response holds only the fields \"([^\"]*)\"$")
+    public void eachMemberOfTheResponseHoldsOnlyTheFields(String fields) throws Throwable {
+        String resp = Get(ResultActions.class).andReturn().getResponse().getContentAsString();
+        List<Map> members = jsonStringToClassArray(resp, Map.class);
+        for (Map member : members)
+            assertEquals(
+                    Arrays.asList(fields.split(",")),
+                    new ArrayList<>(member.keySet())
+            );
+    }
+
+    @When("^I \"([^\"]*)\" the \"([^\"]*)\" endpoint accepting Smile$")
+    public void iTheEndpointAcceptingSmile(String method, String path) throws Throwable {
+        ResultActions result = Get(MockMvc.class).perform(
+                request(HttpMethod.valueOf(method), path)
+                        .accept(CustomerController.APPLICATION_SMILE)
+        )
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(CustomerController.APPLICATION_SMILE));
+        Add(ResultActions.class, result);
+    }
+
+    @Then("^I get a Smile list of Customer objects with one member by the name of \"([^\"]*)\"$")
+    public void iGetASmileListOfCustomerObjectsWithOneMemberByTheNameOf(String expectedName) throws Throwable {
+        byte[] resp = Get(ResultActions.class).andReturn().getResponse().getContentAsByteArray();
+        Customer[] customers = new ObjectMapper(new SmileFactory()).readValue(resp, Customer[].class);
+        assertEquals(
+                1,
+                customers.length
+        );
+        assertEquals(
+                expectedName,
+                customers[0].getName()
+        );
+    }
+
     @When("^I call saveCustomer on \"([^\"]*)\" bean with \"([^\"]*)\"$")
     public void iCallSaveCustomerOnBeanWith(String arg0, String arg1) throws Throwable {
         Add(Customer.class, newCustomer(arg1));
@@ -127,7 +210,14 @@ public class MvcRestfulSteps extends StepsBase{
 
     @When("^I \"([^\"]*)\" the \"([^\"]*)\" with \"([^\"]*)\" with such credentials$")
     public void iTheWithWithSuchCredentials(String arg0, String endpoint, String customerName) throws Throwable {
-        Add(Customer.class, newCustomer(customerName));
+        iTheWithNumberedWithSuchCredentials(arg0, endpoint, customerName, 0);
+    }
+
+    @When("^I \"([^\"]*)\" the \"([^\"]*)\" with \"([^\"]*)\" numbered (\\d+) with such credentials$")
+    public void iTheWithNumberedWithSuchCredentials(String arg0, String endpoint, String customerName, long id) throws Throwable {
+        Customer customer = newCustomer(customerName);
+        customer.setId(id);
+        Add(Customer.class, customer);
         Map<String, String> creds = Get(Map.class);
 
         ResultActions result = Get(MockMvc.class).perform(
@@ -154,4 +244,202 @@ public class MvcRestfulSteps extends StepsBase{
     public void iCanVerifyTheSaveFunctionWasNotCalled() throws Throwable {
         verify(customerRepository,never()).save(any(Customer.class));
     }
+
+    @Given("^the customers page after (\\d+) is masked to return a customer named \"([^\"]*)\"$")
+    public void theCustomersPageAfterIsMaskedToReturnACustomerNamed(long after, String name) throws Throwable {
+        doReturn(Collections.singletonList(newCustomer(name)))
+                .when(customerRepository)
+                .findByIdGreaterThanOrderByIdAsc(eq(after), any(Pageable.class));
+    }
+
+    @When("^I revalidate the \"([^\"]*)\" endpoint with its ETag$")
+    public void iRevalidateTheEndpointWithItsETag(String endpoint) throws Throwable {
+        String etag = Get(ResultActions.class).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(
+                "no ETag on the previous response",
+                etag
+        );
+        ResultActions result = Get(MockMvc.class).perform(
+                get(endpoint).header(HttpHeaders.IF_NONE_MATCH, etag)
+        );
+        Add(ResultActions.class, result);
+    }
+
+    @When("^the customer revision is masked to show a change$")
+    public void theCustomerRevisionIsMaskedToShowAChange() throws Throwable {
+        doReturn(customerRepository.findRevision() + 1)
+                .when(customerRepository)
+                .findRevision();
+    }
+
+    @Given("^the customer summaries after (\\d+) are masked to return a customer named \"([^\"]*)\"$")
+    public void theCustomerSummariesAfterAreMaskedToReturnACustomerNamed(long after, String name) throws Throwable {
+        CustomerSummary summary = new SpelAwareProxyProjectionFactory()
+                .createProjection(CustomerSummary.class, newCustomer(name));
+        doReturn(Collections.singletonList(summary))
+                .when(customerRepository)
+                .findSummariesByIdGreaterThanOrderByIdAsc(eq(after), any(Pageable.class));
+    }
+
+    @When("^I \"([^\"]*)\" the customers \"([^\"]*)\" as newline delimited JSON to \"([^\"]*)\" with such credentials$")
+    public void iTheCustomersAsNewlineDelimitedJSONToWithSuchCredentials(String method, String names, String endpoint) throws Throwable {
+        iTheCustomersNumberedFromAsNewlineDelimitedJSONToWithSuchCredentials(method, names, 9001L, endpoint);
+    }
+
+    @When("^I \"([^\"]*)\" the customers \"([^\"]*)\" numbered from (\\d+) as newline delimited JSON to \"([^\"]*)\" with such credentials$")
+    public void iTheCustomersNumberedFromAsNewlineDelimitedJSONToWithSuchCredentials(String method, String names, long first, String endpoint) throws Throwable {
+        List<Customer> customers = new ArrayList<>();
+        StringBuilder body = new StringBuilder();
+        for (String name : names.split(",")) {
+            Customer customer = newCustomer(first + customers.size());
+            customer.setName(name.trim());
+            customers.add(customer);
+            body.append(jsonObjectToString(customer)).append('\n');
+        }
+        Add(List.class, customers, "IngestedCustomers");
+        Map<String, String> creds = Get(Map.class);
+
+        ResultActions result = Get(MockMvc.class).perform(
+                post(endpoint).contentType(CustomerController.APPLICATION_NDJSON)
+                        .with(user(creds.get("User"))
+                                .password(creds.get("Password"))
+                                .roles(creds.get("Role")))
+                        .content(body.toString())
+        );
+        Add(ResultActions.class, result);
+    }
+
+    @And("^the ingest report shows (\\d+) rows written in (\\d+) chunks$")
+    public void theIngestReportShowsRowsWrittenInChunks(long rows, int chunks) throws Throwable {
+        String resp = Get(ResultActions.class).andReturn().getResponse().getContentAsString();
+        Map<?, ?> report = jsonStringToObject(resp, Map.class);
+        assertEquals(
+                rows,
+                ((Number) report.get("rows")).longValue()
+        );
+        assertEquals(
+                chunks,
+                ((List<?>) report.get("chunks")).size()
+        );
+    }
+
+    @And("^customer (\\d+) is stored with an invoice with products \"([^\"]*)\"$")
+    public void customerIsStoredWithAnInvoiceWithProducts(long id, String names) throws Throwable {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<Product> products = new ArrayList<>();
+            for (String name : names.split(",")) {
+                Product product = new Product();
+                product.setName(name.trim());
+                em.persist(product);
+                products.add(product);
+            }
+            Invoice invoice = new Invoice(0, new Date(), "place", null, products, 0);
+            em.persist(invoice);
+            Customer customer = newCustomer(id);
+            customer.getInvoices().add(invoice);
+            em.persist(customer);
+            em.getTransaction().commit();
+            Add(Long.class, id, "StoredCustomer");
+        } finally {
+            em.close();
+        }
+    }
+
+    @When("^I \"([^\"]*)\" customer (\\d+) renamed to \"([^\"]*)\" to \"([^\"]*)\" with such credentials$")
+    public void iCustomerRenamedToToWithSuchCredentials(String method, long id, String name, String endpoint) throws Throwable {
+        Customer customer = customerService.getById(id).orElseThrow(AssertionError::new);
+        customer.setName(name);
+        Map<String, String> creds = Get(Map.class);
+
+        ResultActions result = Get(MockMvc.class).perform(
+                request(HttpMethod.valueOf(method), endpoint).contentType(MediaType.APPLICATION_JSON)
+                        .with(user(creds.get("User"))
+                                .password(creds.get("Password"))
+                                .roles(creds.get("Role")))
+                        .content(jsonObjectToString(customer))
+        );
+        Add(ResultActions.class, result);
+    }
+
+    @And("^the returned customer has an invoice with (\\d+) products$")
+    public void theReturnedCustomerHasAnInvoiceWithProducts(int products) throws Throwable {
+        String resp = Get(ResultActions.class).andReturn().getResponse().getContentAsString();
+        Customer customer = jsonStringToObject(resp, Customer.class);
+        assertEquals(
+                products,
+                customer.getInvoices().get(0).getProducts().size()
+        );
+    }
+
+    @And("^the customer repository holds a customer named \"([^\"]*)\"$")
+    public void theCustomerRepositoryHoldsACustomerNamed(String name) throws Throwable {
+        assertTrue(
+                customerRepository.findAll().stream().anyMatch(c -> name.equals(c.getName()))
+        );
+    }
+
+    @When("^I \"([^\"]*)\" the \"([^\"]*)\" with such credentials and keep the token$")
+    public void iTheWithSuchCredentialsAndKeepTheToken(String method, String endpoint) throws Throwable {
+        Map<String, String> creds = Get(Map.class);
+        String resp = Get(MockMvc.class).perform(
+                request(HttpMethod.valueOf(method), endpoint)
+                        .with(user(creds.get("User"))
+                                .password(creds.get("Password"))
+                                .roles(creds.get("Role")))
+        )
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Add(String.class, jsonStringToObject(resp, IssuedToken.class).getAccessToken(), "BearerToken");
+    }
+
+    @When("^I \"([^\"]*)\" the \"([^\"]*)\" with \"([^\"]*)\" and the token$")
+    public void iTheWithAndTheToken(String method, String endpoint, String customerName) throws Throwable {
+        iTheWithAndTheToken(method, endpoint, customerName, Get(String.class, "BearerToken"));
+    }
+
+    @When("^I \"([^\"]*)\" the \"([^\"]*)\" with \"([^\"]*)\" and the token \"([^\"]*)\"$")
+    public void iTheWithAndTheToken(String method, String endpoint, String customerName, String token) throws Throwable {
+        Add(Customer.class, newCustomer(customerName));
+        ResultActions result = Get(MockMvc.class).perform(
+                request(HttpMethod.valueOf(method), endpoint).contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .content(jsonObjectToString(Get(Customer.class)))
+        );
+        Add(ResultActions.class, result);
+    }
+
+    @When("^I \"([^\"]*)\" the \"([^\"]*)\" with \"([^\"]*)\" as \"([^\"]*)\" with password \"([^\"]*)\" (\\d+) times$")
+    public void iTheWithAsWithPasswordTimes(String method, String endpoint, String customerName, String user, String password, int times) throws Throwable {
+        Add(Double.class, authenticationCacheHits(), "AuthenticationCacheHits");
+        Add(Customer.class, newCustomer(customerName));
+        for (int i = 0; i < times; i++) {
+            ResultActions result = Get(MockMvc.class).perform(
+                    request(HttpMethod.valueOf(method), endpoint).contentType(MediaType.APPLICATION_JSON)
+                            .with(httpBasic(user, password))
+                            .content(jsonObjectToString(Get(Customer.class)))
+            );
+            Add(ResultActions.class, result);
+        }
+    }
+
+    @And("^the authentication cache answered at least (\\d+) of them$")
+    public void theAuthenticationCacheAnsweredAtLeastOfThem(int hits) throws Throwable {
+        assertTrue(
+                "authentication cache hits did not grow by " + hits,
+                authenticationCacheHits() - Get(Double.class, "AuthenticationCacheHits") >= hits
+        );
+    }
+
+    private double authenticationCacheHits() {
+        FunctionCounter hits = meterRegistry.find("cache.gets")
+                .tags("cache", VerifiedCredentials.CACHE_NAME, "result", "hit")
+                .functionCounter();
+        assertNotNull(
+                "no cache.gets meter for the authentication cache",
+                hits
+        );
+        return hits.count();
+    }
 }
@@ -2,7 +2,19 @@ package com.curisprofound.tddwebstack.cucumber;
 
 import com.curisprofound.tddwebstack.assertions.AssertOnClass;
 import com.curisprofound.tddwebstack.assertions.AssertOnDb;
+import com.curisprofound.tddwebstack.config.MongoIndexInitializer;
+import com.curisprofound.tddwebstack.config.MongoVersionBackfill;
 import com.curisprofound.tddwebstack.db.*;
+import com.curisprofound.tddwebstack.metrics.MongoIndexEndpoint;
+import com.curisprofound.tddwebstack.metrics.RepositoryMetricsAspect;
+import com.curisprofound.tddwebstack.services.AuthorBookCount;
+import com.curisprofound.tddwebstack.services.BookImportReport;
+import com.curisprofound.tddwebstack.services.BookImportService;
+import com.curisprofound.tddwebstack.services.BookStatsService;
+import com.curisprofound.tddwebstack.services.PostalCodePublisherCount;
+import com.curisprofound.tddwebstack.services.PublisherCache;
+import com.curisprofound.tddwebstack.services.PublisherBookCount;
+import com.curisprofound.tddwebstack.services.PublisherResolver;
 import cucumber.api.DataTable;
 import cucumber.api.PendingException;
 import cucumber.api.java.After;
@@ -11,9 +23,17 @@ import cucumber.api.java.en.And;
 import cucumber.api.java.en.Given;
 import cucumber.api.java.en.Then;
 import cucumber.api.java.en.When;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.LazyLoadingProxy;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.repository.Query;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -23,6 +43,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -37,6 +58,30 @@ public class ReactiveMongoSteps extends StepsBase{
     @Autowired
     private ReactiveMongoTemplate mongoTemplate;
 
+    @Autowired
+    private PublisherResolver publisherResolver;
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private PublisherCache publisherCache;
+
+    @Autowired
+    private BookStatsService bookStatsService;
+
+    @Autowired
+    private MongoIndexInitializer mongoIndexInitializer;
+
+    @Autowired
+    private MongoIndexEndpoint mongoIndexEndpoint;
+
+    @Autowired
+    private MongoVersionBackfill mongoVersionBackfill;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private static boolean databaseFilled=false;
 
     @Before("@ReactiveMongo")
@@ -47,6 +92,13 @@ public class ReactiveMongoSteps extends StepsBase{
     @After("@ReactiveMongo")
     public void afterReactiveMongo(){
         bookRepository.deleteAll().block();
+        publisherRepository.deleteAll().block();
+        String conflicting = Get(String.class, "conflictingIndexCollection");
+        if (conflicting != null) {
+            mongoTemplate.indexOps(conflicting).dropAllIndexes().block();
+            mongoIndexInitializer.ensureIndexes().block();
+            Add(String.class, null, "conflictingIndexCollection");
+        }
     }
 
     private List<Book> tableToBooks(DataTable table){
@@ -225,4 +277,295 @@ public class ReactiveMongoSteps extends StepsBase{
                 b.getPublisher().getPostalCode()
         );
     }
+
+    @When("^I read all books through the publisher resolver$")
+    public void iReadAllBooksThroughThePublisherResolver() throws Throwable {
+        List<Book> books = publisherResolver
+                .resolve(bookRepository.findAll())
+                .collectList()
+                .block();
+        Add(List.class, books, "resolvedBooks");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Then("^the resolved book by Id \"([^\"]*)\" has a publisher by postalCode of \"([^\"]*)\"$")
+    public void theResolvedBookByIdHasAPublisherByPostalCodeOf(String bookId, String postalCode) throws Throwable {
+        List<Book> books = Get(List.class, "resolvedBooks");
+        Book b = books.stream()
+                .filter(book -> book.getId().equals(bookId))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("book by id " + bookId + " not resolved"));
+        assertEquals(
+                postalCode,
+                b.getPublisher().getPostalCode()
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @And("^no resolved book has a lazy publisher reference$")
+    public void noResolvedBookHasALazyPublisherReference() throws Throwable {
+        List<Book> books = Get(List.class, "resolvedBooks");
+        books.forEach(b -> assertFalse(
+                "publisher of " + b.getId() + " was not resolved",
+                b.getPublisher() instanceof LazyLoadingProxy
+        ));
+    }
+
+    @SuppressWarnings("unchecked")
+    @When("^I bulk import the books$")
+    public void iBulkImportTheBooks() throws Throwable {
+        List<Book> data = Get(List.class, "bookList");
+        Add(BookImportReport.class, bookImportService.importBooks(Flux.fromIterable(data)).block());
+    }
+
+    @Then("^the import report shows (\\d+) books inserted and (\\d+) duplicates$")
+    public void theImportReportShowsBooksInsertedAndDuplicates(long inserted, long duplicates) throws Throwable {
+        BookImportReport report = Get(BookImportReport.class);
+        assertEquals(
+                inserted,
+                report.getInserted()
+        );
+        assertEquals(
+                duplicates,
+                report.getDuplicates()
+        );
+    }
+
+    @And("^the publisher by id \"([^\"]*)\" lists the book \"([^\"]*)\"$")
+    public void thePublisherByIdListsTheBook(String publisherId, String bookId) throws Throwable {
+        Publisher p = publisherRepository.findById(publisherId).block();
+        assertNotNull(
+                "publisher by id " + publisherId + " not found in repo",
+                p
+        );
+        assertTrue(
+                p.getBooks().contains(bookId)
+        );
+    }
+
+    @When("^I read the publisher \"([^\"]*)\" through the publisher cache$")
+    public void iReadThePublisherThroughThePublisherCache(String id) throws Throwable {
+        Add(Publisher.class, publisherCache.findById(id).block());
+    }
+
+    @Then("^the cached publisher has a postalCode of \"([^\"]*)\"$")
+    public void theCachedPublisherHasAPostalCodeOf(String postalCode) throws Throwable {
+        assertEquals(
+                postalCode,
+                Get(Publisher.class).getPostalCode()
+        );
+    }
+
+    @And("^the publisher cache has recorded a hit$")
+    public void thePublisherCacheHasRecordedAHit() throws Throwable {
+        FunctionCounter hits = meterRegistry.find("cache.gets")
+                .tags("cache", PublisherCache.NAME, "result", "hit")
+                .functionCounter();
+        assertNotNull(
+                "no cache.gets meter for the publisher cache",
+                hits
+        );
+        assertTrue(
+                hits.count() > 0
+        );
+    }
+
+    @When("^I change the postalCode of publisher \"([^\"]*)\" to \"([^\"]*)\"$")
+    public void iChangeThePostalCodeOfPublisherTo(String id, String postalCode) throws Throwable {
+        publisherRepository.findById(id)
+                .doOnNext(p -> p.setPostalCode(postalCode))
+                .flatMap(publisherRepository::save)
+                .block();
+    }
+
+    @When("^I subscribe to all books (\\d+) milliseconds after asking the repository for them$")
+    public void iSubscribeToAllBooksMillisecondsAfterAskingTheRepositoryForThem(long wait) throws Throwable {
+        Timer timer = repositoryTimer("BookRepository", "findAll");
+        DistributionSummary rows = repositoryRows("BookRepository", "findAll");
+        Add(Long.class, timer == null ? 0 : timer.count(), "callsBefore");
+        Add(Double.class, rows == null ? 0 : rows.totalAmount(), "rowsBefore");
+        Add(Long.class, wait, "wait");
+
+        Flux<Book> books = bookRepository.findAll();
+        Thread.sleep(wait);
+        Timer during = repositoryTimer("BookRepository", "findAll");
+        Add(Double.class, during == null ? 0 : during.totalTime(TimeUnit.MILLISECONDS), "timeBefore");
+        books.collectList().block();
+    }
+
+    @Then("^the \"([^\"]*)\" \"([^\"]*)\" timer recorded one more call, shorter than the wait$")
+    public void theTimerRecordedOneMoreCallShorterThanTheWait(String repository, String method) throws Throwable {
+        Timer timer = repositoryTimer(repository, method);
+        assertNotNull(
+                "no " + RepositoryMetricsAspect.METRIC + " timer for " + repository + "." + method,
+                timer
+        );
+        assertEquals(
+                Get(Long.class, "callsBefore") + 1,
+                timer.count()
+        );
+        assertTrue(
+                timer.totalTime(TimeUnit.MILLISECONDS) - Get(Double.class, "timeBefore") < Get(Long.class, "wait")
+        );
+    }
+
+    @And("^the \"([^\"]*)\" \"([^\"]*)\" row summary recorded (\\d+) more rows$")
+    public void theRowSummaryRecordedMoreRows(String repository, String method, int count) throws Throwable {
+        DistributionSummary rows = repositoryRows(repository, method);
+        assertNotNull(
+                "no row summary for " + repository + "." + method,
+                rows
+        );
+        assertEquals(
+                Get(Double.class, "rowsBefore") + count,
+                rows.totalAmount(),
+                0.0
+        );
+    }
+
+    private Timer repositoryTimer(String repository, String method) {
+        return meterRegistry.find(RepositoryMetricsAspect.METRIC)
+                .tags("repository", repository, "method", method, "outcome", "SUCCESS")
+                .timer();
+    }
+
+    private DistributionSummary repositoryRows(String repository, String method) {
+        return meterRegistry.find(RepositoryMetricsAspect.METRIC + ".rows")
+                .tags("repository", repository, "method", method)
+                .summary();
+    }
+
+    @When("^I aggregate the catalog statistics$")
+    public void iAggregateTheCatalogStatistics() throws Throwable {
+        Add(List.class, bookStatsService.booksPerAuthor().collectList().block(), "booksPerAuthor");
+        Add(List.class, bookStatsService.booksPerPublisher().collectList().block(), "booksPerPublisher");
+        Add(List.class, bookStatsService.publishersPerPostalCode().collectList().block(), "publishersPerPostalCode");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Then("^the author \"([^\"]*)\" has (\\d+) books$")
+    public void theAuthorHasBooks(String author, long books) throws Throwable {
+        List<AuthorBookCount> counts = Get(List.class, "booksPerAuthor");
+        AuthorBookCount count = counts.stream()
+                .filter(c -> author.equals(c.getAuthor()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no book count for author " + author));
+        assertEquals(
+                books,
+                count.getBooks()
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @And("^the postal code \"([^\"]*)\" has (\\d+) publishers with (\\d+) books$")
+    public void thePostalCodeHasPublishersWithBooks(String postalCode, long publishers, long books) throws Throwable {
+        List<PostalCodePublisherCount> counts = Get(List.class, "publishersPerPostalCode");
+        PostalCodePublisherCount count = counts.stream()
+                .filter(c -> postalCode.equals(c.getPostalCode()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no publisher count for postal code " + postalCode));
+        assertEquals(
+                publishers,
+                count.getPublishers()
+        );
+        assertEquals(
+                books,
+                count.getBooks()
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @And("^the publisher \"([^\"]*)\" has (\\d+) books$")
+    public void thePublisherHasBooks(String publisherId, long books) throws Throwable {
+        List<PublisherBookCount> counts = Get(List.class, "booksPerPublisher");
+        PublisherBookCount count = counts.stream()
+                .filter(c -> publisherId.equals(c.getPublisherId()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no book count for publisher " + publisherId));
+        assertEquals(
+                books,
+                count.getBooks()
+        );
+    }
+
+    @Given("^the declared Mongo indexes have been ensured$")
+    public void theDeclaredMongoIndexesHaveBeenEnsured() throws Throwable {
+        mongoIndexInitializer.ensureIndexes().block();
+    }
+
+    @Given("^the \"([^\"]*)\" collection has its \"([^\"]*)\" index declared on \"([^\"]*)\" descending instead$")
+    public void theCollectionHasItsIndexDeclaredOnDescendingInstead(String collection, String name, String field) throws Throwable {
+        mongoTemplate.indexOps(collection).dropAllIndexes().block();
+        mongoTemplate.indexOps(collection)
+                .ensureIndex(new Index().on(field, Sort.Direction.DESC).named(name))
+                .block();
+        Add(String.class, collection, "conflictingIndexCollection");
+    }
+
+    @When("^I find the books titled \"([^\"]*)\"$")
+    public void iFindTheBooksTitled(String title) throws Throwable {
+        Add(List.class, bookRepository.findByTitle(title).collectList().block(), "booksByTitle");
+    }
+
+    @Then("^the index report lists \"([^\"]*)\" on the \"([^\"]*)\" collection$")
+    public void theIndexReportListsOnTheCollection(String index, String collection) throws Throwable {
+        assertNotNull(
+                "no index " + index + " on " + collection,
+                reportedIndex(collection, index)
+        );
+    }
+
+    @And("^the index report lists \"([^\"]*)\" on the \"([^\"]*)\" collection with a partial filter$")
+    public void theIndexReportListsOnTheCollectionWithAPartialFilter(String index, String collection) throws Throwable {
+        Map<String, Object> description = reportedIndex(collection, index);
+        assertNotNull(
+                "no index " + index + " on " + collection,
+                description
+        );
+        assertTrue(
+                description.containsKey("partialFilter")
+        );
+    }
+
+    @And("^the index report shows the \"([^\"]*)\" index of the \"([^\"]*)\" collection was used$")
+    public void theIndexReportShowsTheIndexOfTheCollectionWasUsed(String index, String collection) throws Throwable {
+        Map<String, Object> description = reportedIndex(collection, index);
+        assertNotNull(
+                "no index " + index + " on " + collection,
+                description
+        );
+        assertTrue(
+                ((Number) description.get("ops")).longValue() > 0
+        );
+    }
+
+    private Map<String, Object> reportedIndex(String collection, String index) {
+        return mongoIndexEndpoint.indexes()
+                .getOrDefault(collection, new ArrayList<>())
+                .stream()
+                .filter(description -> index.equals(description.get("name")))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Given("^the book \"([^\"]*)\" titled \"([^\"]*)\" was stored without a version$")
+    public void theBookTitledWasStoredWithoutAVersion(String id, String title) throws Throwable {
+        mongoTemplate.insert(new Document("_id", id).append("title", title), mongoTemplate.getCollectionName(Book.class))
+                .block();
+    }
+
+    @When("^I backfill the Mongo document versions$")
+    public void iBackfillTheMongoDocumentVersions() throws Throwable {
+        mongoVersionBackfill.backfill().block();
+    }
+
+    @Then("^the book by id \"([^\"]*)\" has version (\\d+) and a last modified time$")
+    public void theBookByIdHasVersionAndALastModifiedTime(String id, long version) throws Throwable {
+        Book book = bookRepository.findById(id).block();
+        assertEquals(
+                Long.valueOf(version),
+                book.getVersion()
+        );
+        assertNotNull(book.getLastModified());
+    }
 }
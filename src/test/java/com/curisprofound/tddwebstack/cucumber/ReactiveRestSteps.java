@@ -0,0 +1,346 @@
+package com.curisprofound.tddwebstack.cucumber;
+
+import com.curisprofound.tddwebstack.controllers.CustomerController;
+import com.curisprofound.tddwebstack.db.Book;
+import com.curisprofound.tddwebstack.db.BookChange;
+import com.curisprofound.tddwebstack.db.BookRepository;
+import com.curisprofound.tddwebstack.db.Customer;
+import com.curisprofound.tddwebstack.db.CustomerRepository;
+import com.curisprofound.tddwebstack.db.Publisher;
+import com.curisprofound.tddwebstack.db.PublisherRepository;
+import com.curisprofound.tddwebstack.metrics.EndpointMetrics;
+import com.curisprofound.tddwebstack.metrics.RouteMetrics;
+import com.curisprofound.tddwebstack.services.BookChangeFeed;
+import com.curisprofound.tddwebstack.services.PublisherBookCount;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.WebFilterChainProxy;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.FluxExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.ReplayProcessor;
+import reactor.core.scheduler.Scheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReactiveRestSteps extends StepsBase {
+
+    @Autowired
+    private RouterFunction<ServerResponse> bookStatsRoutes;
+
+    @Autowired
+    private RouterFunction<ServerResponse> bookRoutes;
+
+    @Autowired
+    private RouterFunction<ServerResponse> customerRoutes;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    @Qualifier("jdbcScheduler")
+    private Scheduler jdbcScheduler;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private PublisherRepository publisherRepository;
+
+    @Autowired
+    private RouteMetrics routeMetrics;
+
+    @Autowired
+    private BookChangeFeed bookChangeFeed;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SecurityWebFilterChain reactiveSecurityChain;
+
+    @Before("@ReactiveRest")
+    public void beforeReactiveRest() {
+        Add(WebTestClient.class, WebTestClient.bindToRouterFunction(bookStatsRoutes.and(bookRoutes).and(customerRoutes))
+                .webFilter(routeMetrics)
+                .build());
+    }
+
+    @After("@ReactiveRest")
+    public void afterReactiveRest() {
+        bookRepository.deleteAll().block();
+        publisherRepository.deleteAll().block();
+        Customer customer = Get(Customer.class);
+        if (customer != null)
+            customerRepository.delete(customer);
+        Disposable subscription = Get(Disposable.class);
+        if (subscription != null)
+            subscription.dispose();
+        tearDown();
+    }
+
+    @When("^I \"([^\"]*)\" the \"([^\"]*)\" route accepting \"([^\"]*)\"$")
+    public void iTheRouteAccepting(String method, String path, String accept) throws Throwable {
+        FluxExchangeResult<String> result = Get(WebTestClient.class)
+                .method(HttpMethod.valueOf(method))
+                .uri(path)
+                .accept(MediaType.parseMediaType(accept))
+                .exchange()
+                .returnResult(String.class);
+        Add(FluxExchangeResult.class, result);
+    }
+
+    @Given("^the routes are behind the reactive security chain$")
+    public void theRoutesAreBehindTheReactiveSecurityChain() throws Throwable {
+        Add(WebTestClient.class, WebTestClient.bindToRouterFunction(bookStatsRoutes.and(bookRoutes).and(customerRoutes))
+                .webFilter(routeMetrics)
+                .webFilter(new WebFilterChainProxy(reactiveSecurityChain))
+                .build());
+    }
+
+    @When("^I \"([^\"]*)\" the \"([^\"]*)\" route accepting \"([^\"]*)\" as \"([^\"]*)\" with password \"([^\"]*)\"$")
+    public void iTheRouteAcceptingAsWithPassword(String method, String path, String accept, String user, String password) throws Throwable {
+        String credentials = Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        FluxExchangeResult<String> result = Get(WebTestClient.class)
+                .method(HttpMethod.valueOf(method))
+                .uri(path)
+                .accept(MediaType.parseMediaType(accept))
+                .header(HttpHeaders.AUTHORIZATION, "Basic " + credentials)
+                .exchange()
+                .returnResult(String.class);
+        Add(FluxExchangeResult.class, result);
+    }
+
+    @When("^I \"([^\"]*)\" the \"([^\"]*)\" route accepting Smile$")
+    public void iTheRouteAcceptingSmile(String method, String path) throws Throwable {
+        EntityExchangeResult<byte[]> result = Get(WebTestClient.class)
+                .method(HttpMethod.valueOf(method))
+                .uri(path)
+                .accept(CustomerController.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(CustomerController.APPLICATION_SMILE)
+                .expectBody(byte[].class)
+                .returnResult();
+        Add(EntityExchangeResult.class, result);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Then("^the Smile route response holds a book titled \"([^\"]*)\"$")
+    public void theSmileRouteResponseHoldsABookTitled(String title) throws Throwable {
+        byte[] body = ((EntityExchangeResult<byte[]>) Get(EntityExchangeResult.class)).getResponseBody();
+        Book[] books = new ObjectMapper(new SmileFactory()).readValue(body, Book[].class);
+        assertEquals(
+                1,
+                books.length
+        );
+        assertEquals(
+                title,
+                books[0].getTitle()
+        );
+    }
+
+    @When("^I revalidate the \"([^\"]*)\" route with its ETag$")
+    public void iRevalidateTheRouteWithItsETag(String path) throws Throwable {
+        String etag = Get(FluxExchangeResult.class).getResponseHeaders().getETag();
+        assertNotNull(
+                "no ETag on the previous response",
+                etag
+        );
+        FluxExchangeResult<String> result = Get(WebTestClient.class)
+                .get()
+                .uri(path)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(etag)
+                .exchange()
+                .returnResult(String.class);
+        Add(FluxExchangeResult.class, result);
+    }
+
+    @When("^I post a book \"([^\"]*)\" titled \"([^\"]*)\" from publisher \"([^\"]*)\" to the \"([^\"]*)\" route$")
+    public void iPostABookTitledFromPublisherToTheRoute(String id, String title, String publisherId, String path) throws Throwable {
+        Publisher publisher = new Publisher();
+        publisher.setId(publisherId);
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setPublisher(publisher);
+        FluxExchangeResult<String> result = Get(WebTestClient.class)
+                .post()
+                .uri(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .syncBody(book)
+                .exchange()
+                .returnResult(String.class);
+        Add(FluxExchangeResult.class, result);
+    }
+
+    @And("^the \"([^\"]*)\" route counts (\\d+) books for publisher \"([^\"]*)\"$")
+    public void theRouteCountsBooksForPublisher(String path, long books, String publisherId) throws Throwable {
+        List<PublisherBookCount> counts = Get(WebTestClient.class)
+                .get()
+                .uri(path)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(PublisherBookCount.class)
+                .returnResult()
+                .getResponseBody();
+        PublisherBookCount count = counts.stream()
+                .filter(c -> publisherId.equals(c.getPublisherId()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no book count for publisher " + publisherId));
+        assertEquals(
+                books,
+                count.getBooks()
+        );
+    }
+
+    @Then("^the route responds with status (\\d+)$")
+    public void theRouteRespondsWithStatus(int status) throws Throwable {
+        assertEquals(
+                status,
+                Get(FluxExchangeResult.class).getStatus().value()
+        );
+    }
+
+    @Then("^the route responds with status (\\d+) and content type \"([^\"]*)\"$")
+    public void theRouteRespondsWithStatusAndContentType(int status, String contentType) throws Throwable {
+        theRouteRespondsWithStatus(status);
+        MediaType actual = Get(FluxExchangeResult.class).getResponseHeaders().getContentType();
+        assertTrue(
+                "unexpected content type " + actual,
+                MediaType.parseMediaType(contentType).isCompatibleWith(actual)
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @And("^the route response body contains \"([^\"]*)\"$")
+    public void theRouteResponseBodyContains(String expected) throws Throwable {
+        List<String> body = ((FluxExchangeResult<String>) Get(FluxExchangeResult.class))
+                .getResponseBody()
+                .collectList()
+                .block();
+        assertTrue(
+                "response body does not contain " + expected,
+                String.join("", body).contains(expected)
+        );
+    }
+
+    /**
+     * Records probe changes until one reaches the subscription, as changes recorded before the
+     * shared cursor opened are not replayed.
+     */
+    @Given("^I subscribe to the \"([^\"]*)\" route$")
+    public void iSubscribeToTheRoute(String path) throws Throwable {
+        ReplayProcessor<String> events = ReplayProcessor.create();
+        Disposable subscription = Get(WebTestClient.class)
+                .get()
+                .uri(path)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .returnResult(String.class)
+                .getResponseBody()
+                .subscribe(events::onNext, events::onError, events::onComplete);
+        Add(ReplayProcessor.class, events);
+        Add(Disposable.class, subscription);
+        String probe = UUID.randomUUID().toString();
+        Flux.interval(Duration.ZERO, Duration.ofMillis(100))
+                .onBackpressureDrop()
+                .concatMap(tick -> bookChangeFeed.record(BookChange.of("probe", probe, BookChange.Operation.SAVED)))
+                .takeUntilOther(events.filter(event -> event.contains(probe)))
+                .blockLast(Duration.ofSeconds(5));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Then("^the subscription receives an event containing \"([^\"]*)\"$")
+    public void theSubscriptionReceivesAnEventContaining(String expected) throws Throwable {
+        assertNotNull(
+                "no event containing " + expected,
+                ((ReplayProcessor<String>) Get(ReplayProcessor.class))
+                        .filter(event -> event.contains(expected))
+                        .blockFirst(Duration.ofSeconds(5))
+        );
+    }
+
+    @Given("^I have saved a customer with id (\\d+) named \"([^\"]*)\"$")
+    public void iHaveSavedACustomerWithIdNamed(long id, String name) throws Throwable {
+        Customer customer = newCustomer(id);
+        customer.setName(name);
+        Add(Customer.class, customerRepository.save(customer));
+    }
+
+    @When("^I run a task on the jdbc scheduler$")
+    public void iRunATaskOnTheJdbcScheduler() throws Throwable {
+        String threadName = Mono.fromCallable(() -> Thread.currentThread().getName())
+                .subscribeOn(jdbcScheduler)
+                .block();
+        Add(String.class, threadName, "jdbcThread");
+    }
+
+    @Then("^the task ran on a thread named like \"([^\"]*)\"$")
+    public void theTaskRanOnAThreadNamedLike(String prefix) throws Throwable {
+        assertTrue(
+                Get("jdbcThread").startsWith(prefix)
+        );
+    }
+
+    @Then("^the endpoint timer for \"([^\"]*)\" \"([^\"]*)\" has recorded a \"([^\"]*)\" request$")
+    public void theEndpointTimerForHasRecordedARequest(String method, String route, String outcome) throws Throwable {
+        Get(FluxExchangeResult.class).getResponseBody().blockLast();
+        Timer timer = meterRegistry.find(EndpointMetrics.METRIC)
+                .tags("route", route, "method", method, "outcome", outcome)
+                .timer();
+        assertNotNull(
+                "no " + EndpointMetrics.METRIC + " timer for " + method + " " + route,
+                timer
+        );
+        assertTrue(
+                timer.count() > 0
+        );
+    }
+
+    @And("^the endpoint row summary for \"([^\"]*)\" \"([^\"]*)\" has seen a request with (\\d+) rows$")
+    public void theEndpointRowSummaryForHasSeenARequestWithRows(String method, String route, int rows) throws Throwable {
+        DistributionSummary summary = meterRegistry.find(EndpointMetrics.METRIC + ".rows")
+                .tags("route", route, "method", method)
+                .summary();
+        assertNotNull(
+                "no row summary for " + method + " " + route,
+                summary
+        );
+        assertEquals(
+                rows,
+                summary.max(),
+                0.0
+        );
+    }
+}
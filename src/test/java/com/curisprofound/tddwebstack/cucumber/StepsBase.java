@@ -13,6 +13,9 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -59,6 +62,9 @@ public class StepsBase {
         classNames.put("Publisher", Publisher.class);
         classNames.put("CustomerRepository", CustomerRepository.class);
         classNames.put("Customer", Customer.class);
+        classNames.put("Mono", Mono.class);
+        classNames.put("ServerRequest", ServerRequest.class);
+        classNames.put("ServerResponse", ServerResponse.class);
 
         TypeDef.addClassNames(classNames);
     }
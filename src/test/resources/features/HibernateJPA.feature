@@ -111,3 +111,95 @@ Feature: I need an ORM to deal with data persistence
     Given There exists a class named "Product" in "com.curisprofound.tddwebstack.db" package
     And   The class has a field called "invoices" that is of type List of "Invoice"
     Then   The "invoices" field is annotated as "ManyToMany" with parameter "mappedBy" set to "products"
+
+  @HibernateJPA
+  Scenario: Customer should declare a fetch plan and batch load its collections
+    Given There exists a class named "Customer" in "com.curisprofound.tddwebstack.db" package
+    Then  the "NamedEntityGraph" annotation exists in the class annotations
+    And   The "phoneNumbers" field is annotated as "BatchSize"
+    And   The "addresses" field is annotated as "BatchSize"
+    And   The "mealPreferences" field is annotated as "BatchSize"
+    And   The "invoices" field is annotated as "BatchSize"
+
+  @HibernateJPA
+  Scenario: Should keep read-mostly entities and customer collections in the second-level cache
+    Given I have saved a Product named "productOne" in its own transaction
+    Then  the second-level cache holds the saved Product
+    And   the second-level cache has a region named "com.curisprofound.tddwebstack.db.Customer.phoneNumbers"
+    And   the second-level cache has a region named "com.curisprofound.tddwebstack.db.Customer.addresses"
+
+  @HibernateJPA
+  Scenario: Should export invoices joined with their products off a forward-only cursor
+    Given I have saved an invoice with products "exportOne,exportTwo" and an invoice without products
+    When  I export the invoices
+    Then  the export has 3 lines
+    And   export line 1 is for product "exportOne"
+    And   export line 2 is for product "exportTwo"
+    And   the last export line has no product
+
+  @HibernateJPA
+  Scenario: Should aggregate invoice totals per customer in the database
+    Given customer 8101 has an invoice with products "sumOne,sumTwo" and an invoice with products "sumThree"
+    When  I read the invoice summaries
+    Then  the invoice summary of customer 8101 counts 2 invoices and 3 products
+
+  @HibernateJPA
+  Scenario: Should sort invoice summaries by their aggregates
+    Given customer 8104 has an invoice with products "sortOne,sortTwo,sortThree,sortFour" and an invoice with products "sortFive"
+    When  I read the invoice summaries sorted by "productCount" descending
+    Then  the invoice summaries are in descending order of product count
+
+  @HibernateJPA
+  Scenario: Should fail a lazy load outside a transaction and hand out customers initialized
+    Given customer 8103 has an invoice with products "lazyOne" and an invoice with products "lazyTwo"
+    When  I read customer 8103 from the customer repository
+    Then  its invoices cannot be loaded outside a transaction
+    When  I read all customers from the customer service
+    Then  the invoices of customer 8103 and their products are initialized
+
+  @HibernateJPA
+  Scenario: Should flag a lazy load in a session without a transaction
+    Given customer 8108 has an invoice with products "guardOne" and an invoice with products "guardTwo"
+    When  I load the invoices of customer 8108 in a session without a transaction
+    Then  the lazy load guard has flagged the invoices of customer 8108
+
+  @HibernateJPA
+  Scenario: Should build the schema from versioned migrations with indexes for the lookups
+    Then  the database schema is at migration version "7"
+    And   the "invoice" table has an index on "customer_id,date"
+    And   the "invoice" table has an index on "date"
+    And   the "invoice_products" table has an index on "invoices_id,products_id"
+    And   the "customer_invoices" table has an index on "customer_id,invoices_id"
+    And   the "customer" table has an index on "name"
+    And   the "customer_addresses" table has an index on "postal_code"
+    And   the "shipping_contact" table has a unique index on "customer_id"
+
+  @HibernateJPA
+  Scenario: Should take generated ids in blocks from a sequence per entity and keep the inserts batched
+    Given I have saved 120 products in one transaction
+    Then  the ids are consecutive
+    And   saving them prepared at most 4 statements
+
+  @HibernateJPA
+  Scenario: Should give customers posted without an id one from the customer sequence
+    When  I assign ids to 3 customers without one
+    Then  the ids are consecutive
+    And   the ids are in the server range
+    And   a customer with id 8102 keeps it
+
+  @HibernateJPA
+  Scenario: Should fail an ingest rather than overwrite a customer found under an allocated id
+    Given customer 8105 is named "taken"
+    When  I ingest a customer named "posted" without an id and it is allocated 8105
+    Then  the ingest fails on the taken id
+    And   customer 8105 is still named "taken"
+
+  @HibernateJPA
+  Scenario: Should change the customer tag when a product on its invoices or a high-rise extension of its addresses changes
+    Given customer 8106 has an invoice with products "tagOne" and an invoice with products "tagTwo"
+    And   customer 8106 has an address on floor "3" of a high-rise
+    When  I read the tag of customer 8106
+    And   I rename the product "tagOne" to "tagOneRenamed"
+    Then  the tag of customer 8106 has changed
+    When  I move the high-rise address of customer 8106 to floor "4"
+    Then  the tag of customer 8106 has changed
@@ -24,6 +24,54 @@ Feature: I need restful interfaces using MVC components
     When    I "GET" the "/customers" endpoint
     Then    I get a list of Customer objects with one member by the name of "customerOne"
 
+  @MvcRestful
+  Scenario: Should encode the /customers listing as Smile when asked for it
+    Given   the findAll method is masked to return a customer named "customerOne"
+    When    I "GET" the "/customers" endpoint accepting Smile
+    Then    I get a Smile list of Customer objects with one member by the name of "customerOne"
+
+  @MvcRestful
+  Scenario: Should return a keyset page of customers from the /customers endpoint
+    Given   the customers page after 10 is masked to return a customer named "customerEleven"
+    When    I "GET" the "/customers?after=10&size=5" endpoint
+    Then    I get a list of Customer objects with one member by the name of "customerEleven"
+
+  @MvcRestful
+  Scenario: Should write only the requested fields of a customers page
+    Given   the customers page after 10 is masked to return a customer named "customerEleven"
+    When    I "GET" the "/customers?after=10&size=5&fields=id,name" endpoint
+    Then    I get a list of Customer objects with one member by the name of "customerEleven"
+    And     each member of the response holds only the fields "id,name"
+
+  @MvcRestful
+  Scenario: Should reject a fieldset naming a field customers do not have
+    When    I request the "/customers?after=10&size=5&fields=id,password" endpoint
+    Then    I receive a 400 response status
+
+  @MvcRestful
+  Scenario: Should sort invoice summaries by an aggregate and reject unknown sort keys
+    When    I request the "/customers/invoice-summaries?sort=invoiceCount,desc" endpoint
+    Then    I receive a 200 response status
+    When    I request the "/customers/invoice-summaries?sort=invoiceTotal" endpoint
+    Then    I receive a 400 response status
+
+  @MvcRestful
+  Scenario: Should return customer summaries when the summary view is requested
+    Given   the customer summaries after 10 are masked to return a customer named "customerEleven"
+    When    I "GET" the "/customers?after=10&size=5&view=summary" endpoint
+    Then    I get a list of Customer objects with one member by the name of "customerEleven"
+
+  @MvcRestful
+  Scenario: Should answer an unchanged customers page with 304 from the customer revision
+    Given   the customers page after 10 is masked to return a customer named "customerEleven"
+    When    I "GET" the "/customers?after=10&size=5" endpoint
+    And     I revalidate the "/customers?after=10&size=5" endpoint with its ETag
+    Then    I receive a 304 response status
+    When    the customer revision is masked to show a change
+    And     I revalidate the "/customers?after=10&size=5" endpoint with its ETag
+    Then    I receive a 200 response status
+    And     I get a list of Customer objects with one member by the name of "customerEleven"
+
   @MvcRestful
   Scenario: Should have a save customer in controller class for the MVC endpoints
     Given There exists a class named "CustomerController" in "com.curisprofound.tddwebstack.controllers" package
@@ -47,3 +95,52 @@ Feature: I need restful interfaces using MVC components
     Then  I receive a 200 response status
     And   I can verify the save function was called with "customerOne"
     And   The endpoint returns a customer object named "customerOne"
+
+  @MvcRestful
+  Scenario: Should verify repeated basic credentials once while they are cached
+    Given I have mocked save function to just return its input
+    When  I "PUT" the "/customer" with "customerOne" as "writer" with password "writer-secret" 3 times
+    Then  I receive a 200 response status
+    And   the authentication cache answered at least 2 of them
+
+  @MvcRestful
+  Scenario: Should accept a bearer token issued for credentials in place of them
+    Given I have mocked save function to just return its input
+    And   I have a user "usr1" and password "pass1" configured
+    When  I "POST" the "/auth/token" with such credentials and keep the token
+    And   I "PUT" the "/customer" with "customerOne" and the token
+    Then  I receive a 200 response status
+    And   The endpoint returns a customer object named "customerOne"
+
+  @MvcRestful
+  Scenario: Should reject a bearer token that does not verify
+    Given I have mocked save function to just return its input
+    When  I "PUT" the "/customer" with "customerOne" and the token "d3JpdGVy.4102444800..forged"
+    Then  I receive a 401 response status
+    And   I can verify the save function was not called
+
+  @MvcRestful
+  Scenario: Should ingest newline delimited customers in chunks if authenticated
+    Given I have a user "usr1" and password "pass1" configured
+    When  I "POST" the customers "bulkOne,bulkTwo,bulkThree" as newline delimited JSON to "/customers/bulk" with such credentials
+    Then  I receive a 200 response status
+    And   the ingest report shows 3 rows written in 2 chunks
+    And   the customer repository holds a customer named "bulkThree"
+
+  @MvcRestful
+  Scenario: Should save a customer with invoices and products and write the saved customer back
+    Given I have a user "usr1" and password "pass1" configured
+    And   customer 8107 is stored with an invoice with products "putOne,putTwo"
+    When  I "PUT" customer 8107 renamed to "putRenamed" to "/customer" with such credentials
+    Then  I receive a 200 response status
+    And   The endpoint returns a customer object named "putRenamed"
+    And   the returned customer has an invoice with 2 products
+
+  @MvcRestful
+  Scenario: Should not let callers create customers in the server id range
+    Given I have a user "usr1" and password "pass1" configured
+    When  I "POST" the customers "bulkOne" numbered from 1099511627776 as newline delimited JSON to "/customers/bulk" with such credentials
+    Then  I receive a 400 response status
+    When  I "PUT" the "/customer" with "customerOne" numbered 1099511627777 with such credentials
+    Then  I receive a 400 response status
+    And   I can verify the save function was not called
@@ -89,3 +89,87 @@ Feature: I need reactive MongoDb tools
       |id|title|author|publisher|
       |idOne|titleone|authorone,phoneOne|publisherone,postalCode1|
     Then  the book by Id "idOne" has a publisher by postalCode of "postalCode1"
+
+  @ReactiveMongo
+  Scenario: Should resolve the publishers of streamed books in batches
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+      |idTwo|titletwo|authortwo|publishertwo,postalCode2|
+    When  I read all books through the publisher resolver
+    Then  the resolved book by Id "idTwo" has a publisher by postalCode of "postalCode2"
+    And   no resolved book has a lazy publisher reference
+
+  @ReactiveMongo
+  Scenario: Should bulk import books and skip the ones already in the catalog
+    Given I have instantiated book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+      |idTwo|titletwo|authortwo|publishertwo,postalCode2|
+    When  I bulk import the books
+    Then  the import report shows 2 books inserted and 0 duplicates
+    And   the book by Id "idTwo" has a publisher by postalCode of "postalCode2"
+    And   the publisher by id "idOne_publisher" lists the book "idOne"
+    When  I bulk import the books
+    Then  the import report shows 0 books inserted and 2 duplicates
+
+  @ReactiveMongo
+  Scenario: Should serve publishers from the cache until they are saved again
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I read the publisher "idOne_publisher" through the publisher cache
+    And   I read the publisher "idOne_publisher" through the publisher cache
+    Then  the cached publisher has a postalCode of "postalCode1"
+    And   the publisher cache has recorded a hit
+    When  I change the postalCode of publisher "idOne_publisher" to "postalCode9"
+    And   I read the publisher "idOne_publisher" through the publisher cache
+    Then  the cached publisher has a postalCode of "postalCode9"
+
+  @ReactiveMongo
+  Scenario: Should time reactive repository calls from subscription to completion
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone|
+      |idTwo|titletwo|authortwo|publishertwo|
+    When  I subscribe to all books 500 milliseconds after asking the repository for them
+    Then  the "BookRepository" "findAll" timer recorded one more call, shorter than the wait
+    And   the "BookRepository" "findAll" row summary recorded 2 more rows
+
+  @ReactiveMongo
+  Scenario: Should aggregate books per author and publishers per postal code in Mongo
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|aggAuthor|publisherone,aggPostal|
+      |idTwo|titletwo|aggAuthor|publishertwo,aggPostal|
+      |idThree|titlethree|otherAuthor|publisherthree,otherPostal|
+    When  I aggregate the catalog statistics
+    Then  the author "aggAuthor" has 2 books
+    And   the postal code "aggPostal" has 2 publishers with 2 books
+    And   the publisher "idThree_publisher" has 1 books
+
+  @ReactiveMongo
+  Scenario: Should ensure the declared indexes and report their usage
+    Given the declared Mongo indexes have been ensured
+    And   I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I find the books titled "titleone"
+    Then  the index report lists "author_name_title" on the "book" collection
+    And   the index report lists "postalCode" on the "publisher" collection with a partial filter
+    And   the index report shows the "title" index of the "book" collection was used
+
+  @ReactiveMongo
+  Scenario: Should go on ensuring the declared indexes past one that conflicts
+    Given the "book" collection has its "title" index declared on "title" descending instead
+    When  the declared Mongo indexes have been ensured
+    Then  the index report lists "author_name_title" on the "book" collection
+    And   the index report lists "lastModified" on the "book" collection
+
+  @ReactiveMongo
+  Scenario: Should backfill the version of books written before they were versioned
+    Given the book "legacyOne" titled "legacy" was stored without a version
+    When  I backfill the Mongo document versions
+    Then  the book by id "legacyOne" has version 0 and a last modified time
+    When  I update the book by id "legacyOne" title to "relabelled"
+    Then  the book by id "legacyOne" will have title "relabelled"
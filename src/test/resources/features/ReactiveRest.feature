@@ -8,5 +8,170 @@ Feature: I need to implement Reactive RESTFul services
   Scenario: Should have a BookHandler class to handle the API requests
     Given There exists a class named "BookHandler" in "com.curisprofound.tddwebstack.controllers" package
     And   The class has a method "getAll" with parameters "ServerRequest"
-    And   The class has a method "getAll" with parameters "ServerRequest" and return Type "Mono<ServerRespone>"
+    And   The class has a method "getAll" with parameters "ServerRequest" and return Type "Mono<ServerResponse>"
     Then  the "Component" annotation exists in the class annotations
+
+  @ReactiveRest
+  Scenario: Should expose the book handler through a functional router
+    Given There exists a class named "BookRouter" in "com.curisprofound.tddwebstack.controllers" package
+    Then  the "Configuration" annotation exists in the class annotations
+    And   The class has a method "bookRoutes" with parameters "BookHandler"
+
+  @ReactiveRest
+  Scenario: Should return the book catalog as a JSON array by default
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I "GET" the "/books" route accepting "application/json"
+    Then  the route responds with status 200 and content type "application/json"
+    And   the route response body contains "titleone"
+
+  @ReactiveRest
+  Scenario: Should stream the book catalog as server sent events
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I "GET" the "/books" route accepting "text/event-stream"
+    Then  the route responds with status 200 and content type "text/event-stream"
+    And   the route response body contains "titleone"
+
+  @ReactiveRest
+  Scenario: Should stream the book catalog as newline delimited JSON
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I "GET" the "/books" route accepting "application/stream+json"
+    Then  the route responds with status 200 and content type "application/stream+json"
+
+  @ReactiveRest
+  Scenario: Should get and delete a single book by id
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I "GET" the "/books/idOne" route accepting "application/json"
+    Then  the route responds with status 200 and content type "application/json"
+    When  I "DELETE" the "/books/idOne" route accepting "application/json"
+    Then  the route responds with status 204
+    When  I "GET" the "/books/idOne" route accepting "application/json"
+    Then  the route responds with status 404
+
+  @ReactiveRest
+  Scenario: Should answer unchanged books with 304 from their versions
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I "GET" the "/books" route accepting "application/json"
+    And   I revalidate the "/books" route with its ETag
+    Then  the route responds with status 304
+    When  I "GET" the "/books/idOne" route accepting "application/json"
+    And   I revalidate the "/books/idOne" route with its ETag
+    Then  the route responds with status 304
+    When  I update the book by id "idOne" title to "titletwo"
+    And   I revalidate the "/books/idOne" route with its ETag
+    Then  the route responds with status 200 and content type "application/json"
+    And   the route response body contains "titletwo"
+
+  @ReactiveRest
+  Scenario: Should push book changes to change feed subscribers as server sent events
+    Given I subscribe to the "/books/changes" route
+    When  I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    Then  the subscription receives an event containing "idOne"
+
+  @ReactiveRest
+  Scenario: Should serve JPA customers through the reactive routes
+    Given I have saved a customer with id 7001 named "reactiveOne"
+    When  I "GET" the "/reactive/customers/7001" route accepting "application/json"
+    Then  the route responds with status 200 and content type "application/json"
+    And   the route response body contains "reactiveOne"
+    When  I "GET" the "/reactive/customers" route accepting "application/stream+json"
+    Then  the route responds with status 200 and content type "application/stream+json"
+    And   the route response body contains "reactiveOne"
+
+  @ReactiveRest
+  Scenario: Should stream the reactive customers when the accepted type carries parameters
+    Given I have saved a customer with id 7002 named "reactiveTwo"
+    When  I "GET" the "/reactive/customers" route accepting "application/stream+json;q=0.9"
+    Then  the route responds with status 200 and content type "application/stream+json"
+    And   the route response body contains "reactiveTwo"
+
+  @ReactiveRest
+  Scenario: Should reject a customer id or starting point that is not a number
+    When  I "GET" the "/reactive/customers/seven" route accepting "application/json"
+    Then  the route responds with status 400
+    When  I "GET" the "/reactive/customers?after=seven" route accepting "application/json"
+    Then  the route responds with status 400
+
+  @ReactiveRest
+  Scenario: Should run blocking JDBC work on the dedicated scheduler
+    When  I run a task on the jdbc scheduler
+    Then  the task ran on a thread named like "jdbc-"
+
+  @ReactiveRest
+  Scenario: Should time the book routes by route template and count the rows they stream
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+      |idTwo|titletwo|authortwo|publishertwo,postalCode2|
+    When  I "GET" the "/books/idOne" route accepting "application/json"
+    Then  the endpoint timer for "GET" "/books/{id}" has recorded a "SUCCESS" request
+    When  I "GET" the "/books" route accepting "application/json"
+    Then  the endpoint timer for "GET" "/books" has recorded a "SUCCESS" request
+    And   the endpoint row summary for "GET" "/books" has seen a request with 2 rows
+
+  @ReactiveRest
+  Scenario: Should encode the book listing as Smile when asked for it
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I "GET" the "/books" route accepting Smile
+    Then  the Smile route response holds a book titled "titleone"
+
+  @ReactiveRest
+  Scenario: Should count books per author in the database
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|statsAuthor|publisherone,postalCode1|
+      |idTwo|titletwo|statsAuthor|publishertwo,postalCode2|
+    When  I "GET" the "/books/by-author" route accepting "application/json"
+    Then  the route responds with status 200 and content type "application/json"
+    And   the route response body contains "statsAuthor"
+
+  @ReactiveRest
+  Scenario: Should count books posted and deleted through the routes per publisher
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I post a book "idFour" titled "titlefour" from publisher "idOne_publisher" to the "/books" route
+    Then  the route responds with status 201
+    And   the "/books/by-publisher" route counts 2 books for publisher "idOne_publisher"
+    When  I "DELETE" the "/books/idFour" route accepting "application/json"
+    Then  the route responds with status 204
+    And   the "/books/by-publisher" route counts 1 books for publisher "idOne_publisher"
+
+  @ReactiveRest
+  Scenario: Should replace a book posted again under an id that exists
+    Given I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I post a book "idOne" titled "titlereplaced" from publisher "idOne_publisher" to the "/books" route
+    Then  the route responds with status 201
+    When  I "GET" the "/books/idOne" route accepting "application/json"
+    Then  the route responds with status 200 and content type "application/json"
+    And   the route response body contains "titlereplaced"
+    And   the "/books/by-publisher" route counts 1 books for publisher "idOne_publisher"
+
+  @ReactiveRest
+  Scenario: Should authenticate the book routes on the reactive security chain
+    Given the routes are behind the reactive security chain
+    And   I have saved book objects as:
+      |id|title|author|publisher|
+      |idOne|titleone|authorone|publisherone,postalCode1|
+    When  I "GET" the "/books" route accepting "application/json"
+    Then  the route responds with status 403
+    When  I "GET" the "/books" route accepting "application/json" as "writer" with password "wrong"
+    Then  the route responds with status 403
+    When  I "GET" the "/books" route accepting "application/json" as "writer" with password "writer-secret"
+    Then  the route responds with status 200 and content type "application/json"
+    And   the route response body contains "titleone"